@@ -0,0 +1,95 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.ErrorSinkPlugin;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+
+import java.io.IOException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stand-in for the Spigot and Sponge plugins, using the default config.yml shipped in common
+ */
+public class BenchmarkPlugin implements ErrorSinkPlugin {
+
+	private static BenchmarkPlugin instance;
+	private ConfigurationNode rootNode;
+
+	private BenchmarkPlugin() throws IOException {
+		rootNode = loadPluginConfig();
+	}
+
+	/**
+	 * Initialize ErrorSink with the benchmark plugin, only the first call in a JVM does something
+	 * @return The plugin
+	 */
+	public static synchronized BenchmarkPlugin init() {
+		if(instance == null) {
+			try {
+				instance = new BenchmarkPlugin();
+			} catch(IOException e) {
+				throw new RuntimeException(e);
+			}
+			ErrorSink.init(instance);
+			ErrorSink.setOnlinePlayers(42);
+		}
+		return instance;
+	}
+
+	@Override
+	public String getServerName() {
+		return "Benchmark";
+	}
+
+	@Override
+	public String getRelease() {
+		return "benchmark";
+	}
+
+	@Override
+	public ConfigurationNode getPluginConfig() {
+		return rootNode;
+	}
+
+	@Override
+	public ConfigurationNode loadPluginConfig() throws IOException {
+		return YAMLConfigurationLoader.builder()
+				.setURL(BenchmarkPlugin.class.getResource("/config.yml"))
+				.build()
+				.load();
+	}
+
+	@Override
+	public void setPluginConfig(ConfigurationNode rootNode) {
+		this.rootNode = rootNode;
+	}
+
+	@Override
+	public SortedMap<String, String> getLoadedPlugins() {
+		SortedMap<String, String> plugins = new TreeMap<>();
+		for(String plugin : new String[] {"Essentials", "WorldEdit", "WorldGuard", "Vault", "LuckPerms", "ProtocolLib", "dynmap"}) {
+			plugins.put(plugin, "1.0.0");
+		}
+		return plugins;
+	}
+
+	@Override
+	public String getServerVersion() {
+		return "1.12.2-R0.1";
+	}
+
+	@Override
+	public int getOnlinePlayers() {
+		return 42;
+	}
+
+	@Override
+	public SortedMap<String, String> getExtraData() {
+		SortedMap<String, String> extraData = new TreeMap<>();
+		extraData.put("Bukkit", "1.12.2-R0.1-SNAPSHOT");
+		return extraData;
+	}
+
+}
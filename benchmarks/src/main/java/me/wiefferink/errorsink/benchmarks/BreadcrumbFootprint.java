@@ -0,0 +1,52 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.editors.BreadcrumbRecord;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retained bytes per breadcrumb when keeping immutable LogEvents compared to BreadcrumbRecords
+ */
+public class BreadcrumbFootprint {
+
+	private static final int ENTRIES = 50;
+
+	public static void main(String[] args) {
+		List<LogEvent> events = new ArrayList<>();
+		List<BreadcrumbRecord> records = new ArrayList<>();
+		for(int i = 0; i < ENTRIES; i++) {
+			LogEvent event = Log4jLogEvent.newBuilder()
+					.setLoggerName("Minecraft")
+					.setLoggerFqcn("org.apache.logging.log4j.spi.AbstractLogger")
+					.setLevel(Level.INFO)
+					.setThreadName("Server thread")
+					.setTimeMillis(System.currentTimeMillis())
+					.setMessage(new ParameterizedMessage("Player{} issued server command: /home {}", i, "base"))
+					.build()
+					.toImmutable();
+			events.add(event);
+			records.add(new BreadcrumbRecord(
+					event.getTimeMillis(),
+					event.getLevel(),
+					event.getLoggerName(),
+					event.getThreadName(),
+					event.getMessage().getFormattedMessage(),
+					event.getThrown()
+			));
+		}
+
+		// Shared objects like the Level and interned names count once for all entries, as they would in the buffer
+		long eventBytes = GraphLayout.parseInstance(events).totalSize();
+		long recordBytes = GraphLayout.parseInstance(records).totalSize();
+		System.out.println("LogEvent:         " + (eventBytes / ENTRIES) + " bytes per breadcrumb");
+		System.out.println("BreadcrumbRecord: " + (recordBytes / ENTRIES) + " bytes per breadcrumb");
+		System.out.println(GraphLayout.parseInstance(records.get(0)).toFootprint());
+	}
+
+}
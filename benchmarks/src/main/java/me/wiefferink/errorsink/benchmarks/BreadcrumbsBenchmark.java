@@ -0,0 +1,109 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import io.sentry.event.EventBuilder;
+import me.wiefferink.errorsink.common.editors.Breadcrumbs;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording breadcrumbs from 1, 4 and 16 logging threads at once,
+ * and of adding the breadcrumbs to an event
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BreadcrumbsBenchmark {
+
+	private Breadcrumbs breadcrumbs;
+	private Appender breadcrumbAppender;
+	private LogEvent[] events;
+	private LogEvent errorEvent;
+
+	/**
+	 * Position in the corpus of each benchmark thread
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int index;
+	}
+
+	@Setup
+	public void setup() {
+		BenchmarkPlugin.init();
+		Logger logger = (Logger) LogManager.getLogger("ErrorSinkBreadcrumbsBenchmark");
+		breadcrumbs = new Breadcrumbs(logger);
+		breadcrumbAppender = getBreadcrumbAppender(logger);
+		events = LogCorpus.create("mixed");
+		for(LogEvent event : events) {
+			breadcrumbAppender.append(event);
+		}
+		errorEvent = LogCorpus.create("exception")[0];
+	}
+
+	@TearDown
+	public void tearDown() {
+		breadcrumbs.shutdown();
+	}
+
+	/**
+	 * Get the appender that Breadcrumbs added to a logger
+	 * @param logger The logger passed to Breadcrumbs
+	 * @return The appender
+	 */
+	static Appender getBreadcrumbAppender(Logger logger) {
+		Appender appender = logger.getAppenders().get("Breadcrumb Builder");
+		if(appender == null) {
+			throw new IllegalStateException("Breadcrumbs did not add its appender to " + logger.getName());
+		}
+		return appender;
+	}
+
+	private void append(Cursor cursor) {
+		breadcrumbAppender.append(events[cursor.index++ & (LogCorpus.SIZE - 1)]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void append1(Cursor cursor) {
+		append(cursor);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void append4(Cursor cursor) {
+		append(cursor);
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void append16(Cursor cursor) {
+		append(cursor);
+	}
+
+	@Benchmark
+	public EventBuilder processEvent() {
+		EventBuilder eventBuilder = new EventBuilder();
+		breadcrumbs.processEvent(eventBuilder, errorEvent);
+		return eventBuilder;
+	}
+
+}
@@ -0,0 +1,77 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import io.sentry.event.EventBuilder;
+import me.wiefferink.errorsink.common.ErrorSinkSentryAppender;
+import me.wiefferink.errorsink.common.editors.Breadcrumbs;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a Sentry event with all built-in EventEditors, including a full breadcrumb buffer
+ * Nothing is sent, the appender is not attached to a logger
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBuilderBenchmark {
+
+	@Param({"plugin", "exception"})
+	public String corpus;
+
+	private BenchmarkAppender appender;
+	private LogEvent[] events;
+	private int index;
+
+	@Setup
+	public void setup() {
+		BenchmarkPlugin.init();
+		appender = new BenchmarkAppender();
+		Logger logger = (Logger) LogManager.getLogger("ErrorSinkBenchmark");
+		Breadcrumbs breadcrumbs = new Breadcrumbs(logger);
+		appender.addEventEditor(breadcrumbs);
+		// Fill the breadcrumb buffer
+		for(LogEvent event : LogCorpus.create("mixed")) {
+			BreadcrumbsBenchmark.getBreadcrumbAppender(logger).append(event);
+		}
+		events = LogCorpus.create(corpus);
+	}
+
+	@TearDown
+	public void tearDown() {
+		appender.stop();
+	}
+
+	@Benchmark
+	public EventBuilder createEventBuilder() {
+		return appender.createEventBuilder(events[index++ & (LogCorpus.SIZE - 1)]);
+	}
+
+	/**
+	 * Appender with createEventBuilder() accessible to the benchmark
+	 */
+	public static class BenchmarkAppender extends ErrorSinkSentryAppender {
+		@Override
+		public EventBuilder createEventBuilder(LogEvent event) {
+			return super.createEventBuilder(event);
+		}
+	}
+
+}
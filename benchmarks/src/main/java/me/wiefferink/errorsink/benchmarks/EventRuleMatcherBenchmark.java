@@ -0,0 +1,88 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.EventContext;
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.apache.logging.log4j.core.LogEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of running many rules with message, logger and exception criteria against a log line,
+ * like RuleData does for every event that is sent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventRuleMatcherBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int rules;
+
+	@Param({"mixed", "exception"})
+	public String corpus;
+
+	private EventRuleMatcher[] matchers;
+	private LogEvent[] events;
+	private int index;
+
+	@Setup
+	public void setup() {
+		ConfigurationNode parts = SimpleConfigurationNode.root();
+		parts.getNode("player").setValue("[a-zA-Z0-9_]{1,16}");
+		parts.getNode("plugin").setValue("[a-zA-Z0-9-_]+");
+
+		matchers = new EventRuleMatcher[rules];
+		for(int i = 0; i < rules; i++) {
+			ConfigurationNode rule = SimpleConfigurationNode.root().getNode("events", "rules", "rule" + i);
+			switch(i % 4) {
+				case 0:
+					rule.getNode("matchMessage").setValue("^{player} triggered synthetic warning " + i + "$");
+					break;
+				case 1:
+					rule.getNode("matchMessage").setValue("^Could not pass event (?<event>[a-zA-Z]+) to {plugin} v" + i + "\\.");
+					break;
+				case 2:
+					rule.getNode("matchLevel").setValue("ERROR");
+					rule.getNode("matchException").setValue("at synthetic\\.Plugin" + i + "\\.");
+					break;
+				default:
+					rule.getNode("matchLoggerName").setValue("^Plugin" + i + "$");
+					rule.getNode("matchMessage").setValue("^\\[{plugin}\\] ");
+			}
+			matchers[i] = new EventRuleMatcher(rule, parts);
+		}
+		events = LogCorpus.create(corpus);
+	}
+
+	@Benchmark
+	public int matchAll() {
+		// One context per event, the message and exception text are shared by all rules
+		EventContext context = new EventContext(events[index++ & (LogCorpus.SIZE - 1)]);
+		int matched = 0;
+		for(EventRuleMatcher matcher : matchers) {
+			Map<String, String> replacements = matcher.matches(context);
+			if(replacements != null) {
+				matched++;
+			}
+		}
+		return matched;
+	}
+
+}
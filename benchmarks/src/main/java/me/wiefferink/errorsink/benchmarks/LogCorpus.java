@@ -0,0 +1,143 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+
+import java.util.Random;
+
+/**
+ * Synthetic log lines resembling the console of a busy Minecraft server
+ * Generated with a fixed seed, so every run uses the same lines
+ */
+public class LogCorpus {
+
+	// Power of two, benchmarks walk through the corpus with a mask
+	public static final int SIZE = 1024;
+
+	private static final String[] PLUGINS = {"Essentials", "WorldEdit", "WorldGuard", "Vault", "LuckPerms", "dynmap"};
+	private static final String[] EVENTS = {"PlayerInteractEvent", "BlockBreakEvent", "PlayerMoveEvent", "InventoryClickEvent"};
+	private static volatile Throwable stackOverflow;
+
+	/**
+	 * Create a corpus
+	 * @param kind The kind of lines: chat, login, plugin, spam, exception or mixed
+	 * @return SIZE immutable events
+	 */
+	public static LogEvent[] create(String kind) {
+		Random random = new Random(42);
+		LogEvent[] result = new LogEvent[SIZE];
+		for(int i = 0; i < SIZE; i++) {
+			result[i] = create(kind, i, random);
+		}
+		return result;
+	}
+
+	private static LogEvent create(String kind, int i, Random random) {
+		switch(kind) {
+			case "chat":
+				return chat(i, random);
+			case "login":
+				return login(i, random);
+			case "plugin":
+				return plugin(i, random);
+			case "spam":
+				return spam(i, random);
+			case "exception":
+				return exception(i, random);
+			case "mixed":
+				// Mostly chat and logins, some plugin output and spam, few exceptions
+				int roll = random.nextInt(100);
+				if(roll < 35) {
+					return chat(i, random);
+				} else if(roll < 55) {
+					return login(i, random);
+				} else if(roll < 75) {
+					return plugin(i, random);
+				} else if(roll < 95) {
+					return spam(i, random);
+				}
+				return exception(i, random);
+			default:
+				throw new IllegalArgumentException("Unknown corpus: " + kind);
+		}
+	}
+
+	private static LogEvent chat(int i, Random random) {
+		return event(Level.INFO, "Minecraft", "Async Chat Thread - #" + random.nextInt(8),
+				new ParameterizedMessage("<{}> {}", player(random), "anyone want to trade " + random.nextInt(64) + " diamonds?"), null);
+	}
+
+	private static LogEvent login(int i, Random random) {
+		return event(Level.INFO, "Minecraft", "Server thread", new ParameterizedMessage(
+				"{}[/{}:{}] logged in with entity id {} at ([world]{}, 64.0, {})",
+				player(random), "10.0." + random.nextInt(256) + "." + random.nextInt(256), 50000 + random.nextInt(10000),
+				i, random.nextInt(2000) - 1000, random.nextInt(2000) - 1000
+		), null);
+	}
+
+	private static LogEvent plugin(int i, Random random) {
+		String plugin = PLUGINS[random.nextInt(PLUGINS.length)];
+		Level level = random.nextInt(4) == 0 ? Level.WARN : Level.INFO;
+		return event(level, plugin, "Server thread",
+				new SimpleMessage("[" + plugin + "] Saved " + random.nextInt(500) + " regions in " + random.nextInt(50) + "ms"), null);
+	}
+
+	private static LogEvent spam(int i, Random random) {
+		// Repeats a lot on real servers, few different lines
+		if(random.nextBoolean()) {
+			return event(Level.WARN, "Minecraft", "Server thread",
+					new SimpleMessage("Player" + random.nextInt(16) + " moved too quickly! 12.5,0.0,3.1"), null);
+		}
+		return event(Level.WARN, "Minecraft", "Server thread",
+				new SimpleMessage("Can't keep up! Is the server overloaded? Running 2034ms or 40 ticks behind"), null);
+	}
+
+	private static LogEvent exception(int i, Random random) {
+		String plugin = PLUGINS[random.nextInt(PLUGINS.length)];
+		String event = EVENTS[random.nextInt(EVENTS.length)];
+		Throwable thrown = new RuntimeException("Could not pass event " + event, getStackOverflow());
+		return event(Level.ERROR, "Minecraft", "Server thread",
+				new SimpleMessage("Could not pass event " + event + " to " + plugin + " v1.0.0"), thrown);
+	}
+
+	private static String player(Random random) {
+		return "Player" + random.nextInt(200);
+	}
+
+	private static LogEvent event(Level level, String loggerName, String threadName, Message message, Throwable thrown) {
+		return Log4jLogEvent.newBuilder()
+				.setLoggerName(loggerName)
+				.setLoggerFqcn("org.apache.logging.log4j.spi.AbstractLogger")
+				.setLevel(level)
+				.setThreadName(threadName)
+				.setTimeMillis(System.currentTimeMillis())
+				.setMessage(message)
+				.setThrown(thrown)
+				.build()
+				.toImmutable();
+	}
+
+	/**
+	 * Get a StackOverflowError with a full stacktrace, the worst case for rendering exceptions
+	 * @return The error
+	 */
+	private static Throwable getStackOverflow() {
+		if(stackOverflow == null) {
+			try {
+				recurse(0);
+			} catch(StackOverflowError e) {
+				stackOverflow = e;
+			}
+		}
+		return stackOverflow;
+	}
+
+	private static int recurse(int depth) {
+		return recurse(depth + 1) + 1;
+	}
+
+}
@@ -0,0 +1,83 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.matching.MessagePrefilter;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.apache.logging.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of matching a message against all events.filters, with and without the literal prefilter
+ * The message matches none of the filters, which is the common case for a log line
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagePrefilterBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int rules;
+
+	private EventRuleMatcher[] matchers;
+	private MessagePrefilter prefilter;
+	private String message;
+
+	@Setup
+	public void setup() {
+		ConfigurationNode parts = SimpleConfigurationNode.root();
+		parts.getNode("player").setValue("[a-zA-Z0-9_]{1,16}");
+		parts.getNode("plugin").setValue("[a-zA-Z0-9-_]+");
+
+		matchers = new EventRuleMatcher[rules];
+		for(int i = 0; i < rules; i++) {
+			ConfigurationNode rule = SimpleConfigurationNode.root().getNode("events", "filters", "rule" + i);
+			if(i % 2 == 0) {
+				rule.getNode("matchMessage").setValue("^{player} triggered synthetic warning " + i + "$");
+			} else {
+				rule.getNode("matchMessage").setValue("^\\[{plugin}\\] Could not pass synthetic event " + i + " to .+");
+			}
+			matchers[i] = new EventRuleMatcher(rule, parts);
+		}
+		prefilter = new MessagePrefilter(matchers);
+		message = "[Essentials] Player123 issued server command: /home base";
+	}
+
+	@Benchmark
+	public boolean allMatchers() {
+		for(EventRuleMatcher matcher : matchers) {
+			if(matcher.matches(message, Level.WARN, (Throwable) null, "Server thread", "Minecraft") != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Benchmark
+	public boolean prefiltered() {
+		long[] candidates = prefilter.getCandidates(message);
+		for(int i = 0; i < matchers.length; i++) {
+			if(MessagePrefilter.isCandidate(candidates, i)
+					&& matchers[i].matches(message, Level.WARN, (Throwable) null, "Server thread", "Minecraft") != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,104 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.RingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention of adding breadcrumbs from 1, 4 and 16 logging threads at once,
+ * the lock-free RingBuffer compared to the previously used synchronized LinkedList
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferBenchmark {
+
+	private static final int MAXIMUM_ENTRIES = 50;
+	private static final String BREADCRUMB = "Player123 issued server command: /home base";
+
+	private RingBuffer<String> ringBuffer;
+	private LinkedList<String> linkedList;
+
+	@Setup
+	public void setup() {
+		ringBuffer = new RingBuffer<>(MAXIMUM_ENTRIES);
+		linkedList = new LinkedList<>();
+	}
+
+	private void addLinkedList() {
+		synchronized(linkedList) {
+			linkedList.add(BREADCRUMB);
+			if(linkedList.size() > MAXIMUM_ENTRIES) {
+				linkedList.removeFirst();
+			}
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void ringBuffer1() {
+		ringBuffer.add(BREADCRUMB);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void ringBuffer4() {
+		ringBuffer.add(BREADCRUMB);
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void ringBuffer16() {
+		ringBuffer.add(BREADCRUMB);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void synchronizedList1() {
+		addLinkedList();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void synchronizedList4() {
+		addLinkedList();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void synchronizedList16() {
+		addLinkedList();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public List<String> ringBufferSnapshot() {
+		return ringBuffer.snapshot();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public List<String> synchronizedListSnapshot() {
+		synchronized(linkedList) {
+			return new ArrayList<>(linkedList);
+		}
+	}
+
+}
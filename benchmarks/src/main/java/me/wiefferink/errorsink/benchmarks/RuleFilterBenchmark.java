@@ -0,0 +1,51 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.filters.RuleFilter;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of RuleFilter.filter(LogEvent) per log line with the default config.yml
+ * Every line that is logged goes through this, most of them are dropped
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleFilterBenchmark {
+
+	@Param({"chat", "login", "plugin", "spam", "exception", "mixed"})
+	public String corpus;
+
+	private RuleFilter ruleFilter;
+	private LogEvent[] events;
+	private int index;
+
+	@Setup
+	public void setup() {
+		BenchmarkPlugin.init();
+		ruleFilter = new RuleFilter();
+		events = LogCorpus.create(corpus);
+	}
+
+	@Benchmark
+	public Filter.Result filter() {
+		return ruleFilter.filter(events[index++ & (LogCorpus.SIZE - 1)]);
+	}
+
+}
@@ -0,0 +1,64 @@
+package me.wiefferink.errorsink.benchmarks;
+
+import me.wiefferink.errorsink.common.matching.RulePattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the literal fast path of RulePattern compared to Matcher.find() for the shipped literal patterns
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulePatternBenchmark {
+
+	@Param({
+			"^#!#!",
+			"^Invalid statistic in",
+			"^handleDisconnection\\(\\) called twice$",
+			"^\\*\\*\\*\\* SERVER IS RUNNING IN OFFLINE/INSECURE MODE!$",
+			" issued server command: "
+	})
+	public String regex;
+
+	@Param({
+			"[Essentials] Player123 issued server command: /home base",
+			"Invalid statistic in ./world/stats/069a79f4-44e9-4726-a5be-fca90e38aaf5.json: Don't know what minecraft:stat.useItem is"
+	})
+	public String input;
+
+	private RulePattern pattern;
+
+	@Setup
+	public void setup() {
+		pattern = RulePattern.compile(regex);
+		if(!pattern.isLiteral()) {
+			throw new IllegalStateException("Expected a literal pattern: " + regex);
+		}
+	}
+
+	@Benchmark
+	public boolean matcherFind() {
+		return pattern.getPattern().matcher(input).find();
+	}
+
+	@Benchmark
+	public boolean literal() {
+		return pattern.matchesLiteral(input);
+	}
+
+}
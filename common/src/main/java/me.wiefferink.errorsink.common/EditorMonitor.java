@@ -0,0 +1,221 @@
+package me.wiefferink.errorsink.common;
+
+import io.sentry.event.EventBuilder;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing and circuit breaker of an EventEditor
+ * An editor that keeps failing or exceeding its latency budget is skipped for a while,
+ * so that one slow editor cannot slow down every event
+ */
+public class EditorMonitor {
+
+	private final EventEditor editor;
+	private final int priority;
+	private final long budgetNanos;
+	private final int maximumStrikes;
+	private final long disableNanos;
+	private final long errorLogIntervalNanos;
+
+	private final LatencyHistogram captureLatency = new LatencyHistogram();
+	private final LatencyHistogram processLatency = new LatencyHistogram();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder disabledCount = new LongAdder();
+	// Failures or slow runs in a row
+	private final AtomicInteger strikes = new AtomicInteger();
+	// System.nanoTime() until which the editor is skipped, 0 when enabled
+	private volatile long disabledUntil;
+	private final AtomicLong lastErrorLog = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+	private final LongAdder unloggedErrors = new LongAdder();
+
+	/**
+	 * Constructor
+	 * @param editor                  The editor to monitor
+	 * @param priority                The priority of the editor, lower runs first
+	 * @param budgetMillis            Maximum time a run of the editor should take
+	 * @param maximumStrikes          Number of failed or slow runs in a row before the editor is disabled, 0 or less to never disable
+	 * @param disableSeconds          Number of seconds the editor is disabled for
+	 * @param errorLogIntervalSeconds Minimum number of seconds between logging failures of the editor
+	 */
+	public EditorMonitor(EventEditor editor, int priority, long budgetMillis, int maximumStrikes, long disableSeconds, long errorLogIntervalSeconds) {
+		this.editor = editor;
+		this.priority = priority;
+		this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+		this.maximumStrikes = maximumStrikes;
+		this.disableNanos = TimeUnit.SECONDS.toNanos(disableSeconds);
+		this.errorLogIntervalNanos = TimeUnit.SECONDS.toNanos(errorLogIntervalSeconds);
+	}
+
+	/**
+	 * Check if the editor should run, re-enabling it when its disabled time is over
+	 * @return true if the editor should run, otherwise false
+	 */
+	public boolean isEnabled() {
+		long until = disabledUntil;
+		if(until == 0) {
+			return true;
+		}
+		if(System.nanoTime() - until >= 0) {
+			disabledUntil = 0;
+			strikes.set(0);
+			Log.info("EventEditor", getName(), "is enabled again");
+			return true;
+		}
+		skipped.increment();
+		return false;
+	}
+
+	/**
+	 * Run the capture step of the editor
+	 * @param context The event to capture information for
+	 */
+	public void capture(EventContext context) {
+		long start = System.nanoTime();
+		Exception failure = null;
+		try {
+			editor.captureEvent(context);
+		} catch(Exception e) {
+			failure = e;
+		}
+		record(captureLatency, "capture", System.nanoTime() - start, failure);
+	}
+
+	/**
+	 * Run the process step of the editor
+	 * @param eventBuilder The builder of the event
+	 * @param context      The event that is happening
+	 */
+	public void process(EventBuilder eventBuilder, EventContext context) {
+		long start = System.nanoTime();
+		Exception failure = null;
+		try {
+			editor.processEvent(eventBuilder, context);
+		} catch(Exception e) {
+			failure = e;
+		}
+		record(processLatency, "process", System.nanoTime() - start, failure);
+	}
+
+	/**
+	 * Record the result of a run
+	 * @param histogram The histogram of the step
+	 * @param step      The name of the step
+	 * @param nanos     The duration of the run
+	 * @param failure   The exception thrown by the editor, or null
+	 */
+	private void record(LatencyHistogram histogram, String step, long nanos, Exception failure) {
+		histogram.record(nanos);
+		boolean slow = budgetNanos > 0 && nanos > budgetNanos;
+		if(failure != null) {
+			failures.increment();
+			logFailure(step, failure);
+		} else if(slow) {
+			Log.debug("EventEditor", getName(), step, "took", TimeUnit.NANOSECONDS.toMillis(nanos) + "ms");
+		}
+
+		if(failure == null && !slow) {
+			strikes.set(0);
+		} else if(maximumStrikes > 0 && strikes.incrementAndGet() >= maximumStrikes && disabledUntil == 0) {
+			disabledUntil = System.nanoTime() + disableNanos;
+			disabledCount.increment();
+			Log.warn("EventEditor", getName(), "failed or took longer than", TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms",
+					maximumStrikes, "times in a row, disabling it for", TimeUnit.NANOSECONDS.toSeconds(disableNanos), "seconds");
+		}
+	}
+
+	/**
+	 * Log a failure, at most once per interval to prevent flooding the console
+	 * @param step    The step that failed
+	 * @param failure The exception thrown by the editor
+	 */
+	private void logFailure(String step, Exception failure) {
+		long now = System.nanoTime();
+		long last = lastErrorLog.get();
+		if(now - last < errorLogIntervalNanos || !lastErrorLog.compareAndSet(last, now)) {
+			unloggedErrors.increment();
+			return;
+		}
+		long hidden = unloggedErrors.sumThenReset();
+		Log.error("EventEditor", getName(), "failed to " + step + (hidden > 0 ? " (" + hidden + " more failures not logged)" : "") + ":", ExceptionUtils.getStackTrace(failure));
+	}
+
+	/**
+	 * Get the monitored editor
+	 * @return The editor
+	 */
+	public EventEditor getEditor() {
+		return editor;
+	}
+
+	/**
+	 * Get the priority of the monitored editor
+	 * @return The priority, lower runs first
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Get the name of the monitored editor
+	 * @return The class name of the editor
+	 */
+	public String getName() {
+		return editor.getClass().getName();
+	}
+
+	/**
+	 * Check if the editor is currently disabled by the circuit breaker
+	 * @return true if disabled, otherwise false
+	 */
+	public boolean isDisabled() {
+		long until = disabledUntil;
+		return until != 0 && System.nanoTime() - until < 0;
+	}
+
+	/**
+	 * Time spent capturing information on the logging thread
+	 * @return The histogram
+	 */
+	public LatencyHistogram getCaptureLatency() {
+		return captureLatency;
+	}
+
+	/**
+	 * Time spent processing events
+	 * @return The histogram
+	 */
+	public LatencyHistogram getProcessLatency() {
+		return processLatency;
+	}
+
+	/**
+	 * Get the number of runs that threw an exception
+	 * @return The number of failures
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * Get the number of runs skipped because the editor was disabled
+	 * @return The number of skipped runs
+	 */
+	public long getSkipped() {
+		return skipped.sum();
+	}
+
+	/**
+	 * Get the number of times the circuit breaker disabled the editor
+	 * @return The number of times
+	 */
+	public long getDisabledCount() {
+		return disabledCount.sum();
+	}
+
+}
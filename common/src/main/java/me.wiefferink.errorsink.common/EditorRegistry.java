@@ -0,0 +1,64 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Ordered set of EventEditors, lowest priority runs first and equal priorities run in registration order
+ * Changes copy the array, so going through the editors for an event does not lock or allocate
+ */
+public class EditorRegistry {
+
+	private static final EditorMonitor[] EMPTY = new EditorMonitor[0];
+
+	private volatile EditorMonitor[] editors = EMPTY;
+
+	/**
+	 * Add an editor
+	 * @param monitor The monitor of the editor to add
+	 * @return true if the editor is added, false if it was already registered
+	 */
+	public synchronized boolean add(EditorMonitor monitor) {
+		EditorMonitor[] current = editors;
+		for(EditorMonitor existing : current) {
+			if(existing.getEditor() == monitor.getEditor()) {
+				return false;
+			}
+		}
+		EditorMonitor[] result = Arrays.copyOf(current, current.length + 1);
+		result[current.length] = monitor;
+		// Stable sort, equal priorities keep registration order
+		Arrays.sort(result, Comparator.comparingInt(EditorMonitor::getPriority));
+		editors = result;
+		return true;
+	}
+
+	/**
+	 * Remove an editor
+	 * @param editor The editor to remove
+	 * @return The monitor of the removed editor, or null if it was not registered
+	 */
+	public synchronized EditorMonitor remove(EventEditor editor) {
+		EditorMonitor[] current = editors;
+		for(int i = 0; i < current.length; i++) {
+			if(current[i].getEditor() == editor) {
+				EditorMonitor[] result = new EditorMonitor[current.length - 1];
+				System.arraycopy(current, 0, result, 0, i);
+				System.arraycopy(current, i + 1, result, i, current.length - i - 1);
+				editors = result;
+				return current[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the registered editors in execution order
+	 * The returned array is shared and should not be modified
+	 * @return The monitors of the editors
+	 */
+	public EditorMonitor[] getEditors() {
+		return editors;
+	}
+
+}
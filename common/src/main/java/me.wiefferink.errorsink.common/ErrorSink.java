@@ -2,36 +2,122 @@ package me.wiefferink.errorsink.common;
 
 import ninja.leaping.configurate.ConfigurationNode;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ErrorSink {
 
     private static ErrorSinkPlugin plugin;
+    private static volatile ServerSnapshot serverSnapshot;
+    private static final AtomicInteger onlinePlayers = new AtomicInteger();
+    private static final Statistics statistics = new Statistics();
+    private static volatile RuleSet ruleSet;
+    private static final Object reloadLock = new Object();
 
     public static void init(ErrorSinkPlugin plugin) {
         if (ErrorSink.plugin != null) {
             throw new RuntimeException("Already initialized: " + ErrorSink.plugin);
         }
         ErrorSink.plugin = plugin;
-        initMatcherMap();
+        ruleSet = RuleSet.compile(plugin.getPluginConfig());
+        updateServerSnapshot();
     }
 
-    private static void initMatcherMap() {
-        List<String[]> matchSectionNames = Arrays
-                .asList(new String[] { "events", "filters"}, new String[] { "events", "rules" }, new String[] { "breadcrumbs", "filters"}, new String[] { "breadcrumbs", "rules" });
-        ConfigurationNode root = ErrorSink.getPlugin().getPluginConfig();
-        Map<List<Object>, EventRuleMatcher> matcherMap = ErrorSink.getPlugin().getMatcherMap();
+    /**
+     * Get the compiled filters and rules of the config
+     * Read it once per event, a reload replaces it as a whole
+     * @return The current RuleSet
+     */
+    public static RuleSet getRuleSet() {
+        return ruleSet;
+    }
 
-        for(String[] matchSectionName : matchSectionNames) {
-            ConfigurationNode matchSection = ErrorSink.getPlugin().getPluginConfig().getNode((Object[]) matchSectionName);
-            if(matchSection != null) {
-                for(ConfigurationNode eventRule : matchSection.getChildrenMap().values()) {
-                    matcherMap.put(Arrays.asList(eventRule.getPath()), new EventRuleMatcher(eventRule, root.getNode("parts")));
+    /**
+     * Load the config again and swap in its filters and rules
+     * Compiling happens in the background, events keep using the old rules until the new ones are ready.
+     * If loading or compiling fails the old config and rules stay active.
+     * Reloads run one at a time, so the config and rules that are active always come from the same load.
+     * Other settings (async, rateLimit, editors, stackTrace, breadcrumbs.maximumEntries) only change after a restart.
+     * @return Future completing with the new RuleSet, or exceptionally if reloading failed
+     */
+    public static CompletableFuture<RuleSet> reload() {
+        ErrorSinkPlugin currentPlugin = getPlugin();
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (reloadLock) {
+                ConfigurationNode root;
+                try {
+                    root = currentPlugin.loadPluginConfig();
+                } catch(IOException e) {
+                    throw new CompletionException(e);
+                }
+                RuleSet result = RuleSet.compile(root);
+                // Only publish when compiling succeeded
+                currentPlugin.setPluginConfig(root);
+                // Swap and keep the counts of the old rules at once, a report never misses or doubles them
+                synchronized (statistics) {
+                    RuleSet previous = ruleSet;
+                    ruleSet = result;
+                    statistics.retire(previous.getCounters());
                 }
+                Log.info("Reloaded", result.getRuleTable().size(), "filters and rules");
+                return result;
             }
-        }
+        });
+    }
+
+    /**
+     * Collect the plugin list and server information again, call when plugins are enabled or disabled
+     */
+    public static void updateServerSnapshot() {
+        serverSnapshot = ServerSnapshot.create(getPlugin());
+    }
+
+    /**
+     * Get the plugin list and server information, without calling the server API
+     * @return The last collected snapshot
+     */
+    public static ServerSnapshot getServerSnapshot() {
+        return serverSnapshot;
+    }
+
+    /**
+     * Set the number of online players, when it is safe to ask the server
+     * @param players The number of online players
+     */
+    public static void setOnlinePlayers(int players) {
+        onlinePlayers.set(players);
+    }
+
+    /**
+     * Count a player that joined
+     */
+    public static void playerJoined() {
+        onlinePlayers.incrementAndGet();
+    }
+
+    /**
+     * Count a player that left
+     */
+    public static void playerLeft() {
+        onlinePlayers.decrementAndGet();
+    }
+
+    /**
+     * Get the number of online players, without calling the server API
+     * @return The number of online players
+     */
+    public static int getOnlinePlayers() {
+        return Math.max(0, onlinePlayers.get());
+    }
+
+    /**
+     * Get the counters and timings of the event pipeline
+     * @return The statistics
+     */
+    public static Statistics getStatistics() {
+        return statistics;
     }
 
     public static ErrorSinkPlugin getPlugin() {
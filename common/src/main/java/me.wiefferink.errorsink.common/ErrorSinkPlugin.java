@@ -1,12 +1,9 @@
 package me.wiefferink.errorsink.common;
 
-import io.sentry.event.EventBuilder;
 import ninja.leaping.configurate.ConfigurationNode;
-import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.LogEvent;
 
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
 import java.util.SortedMap;
 
 public interface ErrorSinkPlugin {
@@ -15,33 +12,32 @@ public interface ErrorSinkPlugin {
 
     String getRelease();
 
-    void increaseMessageSent();
-
-    Map<List<Object>, EventRuleMatcher> getMatcherMap();
+    /**
+     * Get the counters and timings of the event pipeline
+     *
+     * @return The statistics
+     */
+    default Statistics getStatistics() {
+        return ErrorSink.getStatistics();
+    }
 
     ConfigurationNode getPluginConfig();
 
     /**
-     * Match a rule to an event
+     * Load the config file again, without using it yet
+     * Called from a background thread, getPluginConfig() returns the old config until setPluginConfig() is called
      *
-     * @param matcherPath The path of the matcher rules to use
-     * @param message     The message to match
-     * @param level       The level to match
-     * @param throwable   The exception to match
-     * @param threadName  The thread name to match
-     * @param loggerName  The logger name to match
-     * @return A map with the captured groups if a match is found, otherwise null
+     * @return The root of the loaded config
+     * @throws IOException When the config cannot be read
      */
-    default Map<String, String> match(List<Object> matcherPath, String message, Level level, Throwable throwable, String threadName, String loggerName) {
-        EventRuleMatcher matcher = getMatcherMap().get(matcherPath);
-        if(matcher == null) {
-            Log.error("Trying to match path", matcherPath, "but there is no EventRuleMatcher!");
-            Log.error(matcherPath);
-            return null;
-        }
-
-        return matcher.matches(message, level, throwable, threadName, loggerName);
-    }
+    ConfigurationNode loadPluginConfig() throws IOException;
+
+    /**
+     * Use a config loaded by loadPluginConfig(), called after its filters and rules compiled successfully
+     *
+     * @param rootNode The root of the config
+     */
+    void setPluginConfig(ConfigurationNode rootNode);
 
     default long getTimeStamp(LogEvent event) {
         return event.getTimeMillis();
@@ -53,5 +49,5 @@ public interface ErrorSinkPlugin {
 
     int getOnlinePlayers();
 
-    void addExtraData(EventBuilder builder);
+    SortedMap<String, String> getExtraData();
 }
@@ -1,5 +1,7 @@
 package me.wiefferink.errorsink.common;
 
+import io.sentry.Sentry;
+import io.sentry.environment.SentryEnvironment;
 import io.sentry.event.Event;
 import io.sentry.event.EventBuilder;
 import io.sentry.event.interfaces.ExceptionInterface;
@@ -15,35 +17,81 @@ import me.wiefferink.errorsink.common.filters.RuleFilter;
 import ninja.leaping.configurate.ConfigurationNode;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LogEvent;
 import org.apache.logging.log4j.message.Message;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Deque;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Extension of the default SentryAppender class to customize error collection for Minecraft servers
  */
 public class ErrorSinkSentryAppender extends SentryAppender {
 
-	private Set<EventEditor> eventEditors;
+	// Editors with their timing and circuit breaker, in execution order
+	private EditorRegistry eventEditors;
+	private ConfigurationNode editorsNode;
+	// Background processing of events, null when events are processed on the logging thread
+	private EventPipeline pipeline;
+	// Limits events per fingerprint, null when disabled
+	private RateLimiter rateLimiter;
+	// Use the time of the event instead of the current time for rate limiting
+	private volatile boolean rateLimitOnEventTime;
+	private RuleData ruleData;
+	// Called from append() instead of by log4j, to share the EventContext with the rules and editors
+	private RuleFilter ruleFilter;
 
 	public ErrorSinkSentryAppender() {
 	    ConfigurationNode rootNode = ErrorSink.getPlugin().getPluginConfig();
-		eventEditors = new HashSet<>();
+		eventEditors = new EditorRegistry();
+		editorsNode = rootNode.getNode("editors");
+
+		// Background processing
+		ConfigurationNode asyncNode = rootNode.getNode("async");
+		if(asyncNode.getNode("enabled").getBoolean(false)) {
+			EventPipeline.OverflowPolicy overflowPolicy = EventPipeline.OverflowPolicy.DROP_OLDEST;
+			String overflowString = asyncNode.getNode("overflow").getString();
+			if(overflowString != null) {
+				try {
+					overflowPolicy = EventPipeline.OverflowPolicy.valueOf(overflowString.toUpperCase());
+				} catch(IllegalArgumentException e) {
+					Log.warn("Incorrect overflow policy \"" + overflowString + "\" at async.overflow, using", overflowPolicy);
+				}
+			}
+			pipeline = new EventPipeline(
+					asyncNode.getNode("threads").getInt(1),
+					asyncNode.getNode("queueSize").getInt(1000),
+					overflowPolicy,
+					this::send
+			);
+		}
+
+		// Rate limiting
+		ConfigurationNode rateLimitNode = rootNode.getNode("rateLimit");
+		if(rateLimitNode.getNode("enabled").getBoolean(false)) {
+			rateLimiter = new RateLimiter(
+					rateLimitNode.getNode("burst").getInt(10),
+					rateLimitNode.getNode("perMinute").getDouble(10),
+					rateLimitNode.getNode("maximumKeys").getInt(1000)
+			);
+		}
 
 		// Filters
 		this.addFilter(new ErrorSinkFilter());
-		this.addFilter(new RuleFilter(rootNode));
+		ruleFilter = new RuleFilter();
 
 
 		// Editors
-		this.addEventEditor(new RuleData(rootNode));
-		this.addEventEditor(new StackInformation());
-		this.addEventEditor(new ServerInformation());
-		this.addEventEditor(new PluginInformation());
+		ruleData = new RuleData();
+		this.addEventEditor(new ServerInformation(), EventEditor.PRIORITY_INFORMATION, false);
+		this.addEventEditor(new PluginInformation(), EventEditor.PRIORITY_INFORMATION, false);
+		this.addEventEditor(new StackInformation(rootNode), EventEditor.PRIORITY_INFORMATION, false);
+		this.addEventEditor(ruleData, EventEditor.PRIORITY_RULES, false);
 	}
 
 	/**
@@ -51,7 +99,54 @@ public class ErrorSinkSentryAppender extends SentryAppender {
 	 * @param eventEditor The EventEditor to add
 	 */
 	public void addEventEditor(EventEditor eventEditor) {
-		eventEditors.add(eventEditor);
+		addEventEditor(eventEditor, EventEditor.PRIORITY_DEFAULT);
+	}
+
+	/**
+	 * Add an EventEditor to enhance events with more information
+	 * @param eventEditor The EventEditor to add
+	 * @param priority    The priority of the editor, lower runs first, see the PRIORITY constants of {@link EventEditor}
+	 */
+	public void addEventEditor(EventEditor eventEditor, int priority) {
+		addEventEditor(eventEditor, priority, true);
+	}
+
+	/**
+	 * Add an EventEditor to enhance events with more information
+	 * The editors of ErrorSink itself are added without circuit breaker: disabling them after a few slow runs
+	 * (GC pauses, big stacktraces) would send events without fingerprints, tags and level overrides
+	 * @param eventEditor    The EventEditor to add
+	 * @param priority       The priority of the editor, lower runs first, see the PRIORITY constants of {@link EventEditor}
+	 * @param circuitBreaker true to disable the editor for a while when it keeps failing or exceeding its latency budget,
+	 *                       false to only time it and log its failures
+	 */
+	public void addEventEditor(EventEditor eventEditor, int priority, boolean circuitBreaker) {
+		eventEditors.add(new EditorMonitor(
+				eventEditor,
+				priority,
+				editorsNode.getNode("latencyBudget").getLong(50),
+				circuitBreaker ? editorsNode.getNode("maximumStrikes").getInt(5) : 0,
+				editorsNode.getNode("disableSeconds").getLong(300),
+				editorsNode.getNode("errorLogInterval").getLong(60)
+		));
+	}
+
+	/**
+	 * Remove an EventEditor, it is not shut down
+	 * @param eventEditor The EventEditor to remove
+	 * @return true if the editor was removed, false if it was not added
+	 */
+	public boolean removeEventEditor(EventEditor eventEditor) {
+		return eventEditors.remove(eventEditor) != null;
+	}
+
+	/**
+	 * Get the timing and circuit breaker state of the EventEditors
+	 * @return The monitors of the editors, in execution order, not modifiable
+	 */
+	public List<EditorMonitor> getEditorMonitors() {
+		// The array is shared with the logging threads, a writable view would allow reordering it
+		return Collections.unmodifiableList(Arrays.asList(eventEditors.getEditors()));
 	}
 
 	/**
@@ -60,11 +155,143 @@ public class ErrorSinkSentryAppender extends SentryAppender {
 	@Override
 	public void stop() {
 		super.stop();
-		for(EventEditor editor : eventEditors) {
-			editor.shutdown();
+		if(pipeline != null) {
+			pipeline.shutdown();
+		}
+		for(String line : StatisticsReport.create(this)) {
+			Log.debug(line);
+		}
+		for(EditorMonitor monitor : eventEditors.getEditors()) {
+			monitor.getEditor().shutdown();
 		}
 	}
 
+	/**
+	 * Get the pipeline processing events in the background
+	 * @return The pipeline, or null if events are processed on the logging thread
+	 */
+	public EventPipeline getPipeline() {
+		return pipeline;
+	}
+
+	/**
+	 * Filter, rate limit and send an event
+	 * Does not call SentryAppender.append(): the filters run here instead of through log4j, so they share the
+	 * EventContext with the rules and editors, and the event is built by {@link #createEventBuilder(EventContext)}
+	 * and sent with Sentry.capture() directly or from the EventPipeline
+	 * @param event The logged event
+	 */
+	@Override
+	public void append(LogEvent event) {
+		// Events logged while sending to Sentry should not be sent
+		if(SentryEnvironment.isManagingThread()) {
+			return;
+		}
+
+		// Formatted message and exception text are shared by the filter, rules and editors from here on
+		EventContext context = new EventContext(event);
+		if(ruleFilter.filter(context) == Filter.Result.DENY) {
+			return;
+		}
+
+		// Drop repeating events before doing any expensive work
+		long suppressed = 0;
+		if(rateLimiter != null) {
+			long now = rateLimitOnEventTime ? TimeUnit.MILLISECONDS.toNanos(ErrorSink.getPlugin().getTimeStamp(event)) : System.nanoTime();
+			suppressed = rateLimiter.acquire(getRateLimitKey(context), now);
+			if(suppressed < 0) {
+				ErrorSink.getStatistics().eventRateLimited();
+				return;
+			}
+		}
+
+		if(pipeline == null) {
+			captureEvent(context);
+			context.setSuppressed(suppressed);
+			send(context);
+		} else {
+			// Only take a snapshot here, building happens in the background
+			EventContext immutableContext = captureEvent(context.toImmutable());
+			immutableContext.setSuppressed(suppressed);
+			pipeline.submit(immutableContext);
+		}
+	}
+
+	/**
+	 * Get the key used to rate limit an event
+	 * Uses the fingerprint set by the rules, otherwise the exception class and top frame, otherwise the logger and message format
+	 * @param context The event to get the key for
+	 * @return The key
+	 */
+	private Object getRateLimitKey(EventContext context) {
+		List<String> fingerprint = ruleData.getFingerprint(context);
+		if(fingerprint != null) {
+			return fingerprint;
+		}
+
+		LogEvent event = context.getEvent();
+		Throwable throwable = event.getThrown();
+		if(throwable != null) {
+			StackTraceElement[] stackTrace = throwable.getStackTrace();
+			return Arrays.asList(ThrowableText.getClassName(throwable), stackTrace.length == 0 ? null : stackTrace[0]);
+		}
+
+		Message message = event.getMessage();
+		return Arrays.asList(event.getLoggerName(), message == null ? null : message.getFormat());
+	}
+
+	/**
+	 * Rate limit on the time events were logged instead of the current time
+	 * For replaying a log, which goes much faster than the log was written
+	 * @param rateLimitOnEventTime true to use the timestamp of the event, false to use the current time
+	 */
+	public void setRateLimitOnEventTime(boolean rateLimitOnEventTime) {
+		this.rateLimitOnEventTime = rateLimitOnEventTime;
+	}
+
+	/**
+	 * Get the rate limiter of events
+	 * @return The rate limiter, or null if rate limiting is disabled
+	 */
+	public RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Build and send an event
+	 * @param context The event to send
+	 */
+	private void send(EventContext context) {
+		Statistics statistics = ErrorSink.getStatistics();
+		SentryEnvironment.startManagingThread();
+		try {
+			EventBuilder eventBuilder = createEventBuilder(context);
+			long start = System.nanoTime();
+			Sentry.capture(eventBuilder);
+			statistics.getSendLatency().recordSince(start);
+			statistics.eventSent();
+		} catch(Exception e) {
+			statistics.eventFailed();
+			Log.error("Failed to send event:", ExceptionUtils.getStackTrace(e));
+		} finally {
+			SentryEnvironment.stopManagingThread();
+		}
+	}
+
+	/**
+	 * Capture the information of an event that is only available on the logging thread
+	 * @param context The event to capture
+	 * @return The context holding the event and captured information
+	 */
+	private EventContext captureEvent(EventContext context) {
+		for(EditorMonitor monitor : eventEditors.getEditors()) {
+			if(monitor.isEnabled()) {
+				monitor.capture(context);
+			}
+		}
+		return context;
+	}
+
 	// Change the name of the appender, multiple with the same name does not work (probably used as key in a map somewhere)
 	@Override
 	public String getName() {
@@ -97,24 +324,36 @@ public class ErrorSinkSentryAppender extends SentryAppender {
 	 */
 	@Override
 	protected EventBuilder createEventBuilder(LogEvent event) {
+		return createEventBuilder(captureEvent(new EventContext(event)));
+	}
+
+	/**
+	 * Builds an Event based on a captured logging event
+	 * @param context The captured event
+	 * @return Event containing details provided by the logging system.
+	 */
+	protected EventBuilder createEventBuilder(EventContext context) {
+		LogEvent event = context.getEvent();
+
 		// Basics
 		Message eventMessage = event.getMessage();
+		String formattedMessage = context.getFormattedMessage();
 		EventBuilder eventBuilder = new EventBuilder()
 				.withSdkIntegration("log4j2")
 				.withTimestamp(new Date(ErrorSink.getPlugin().getTimeStamp(event)))
-				.withMessage(eventMessage.getFormattedMessage())
+				.withMessage(formattedMessage)
 				.withLogger(event.getLoggerName())
 				.withLevel(levelToEventLevel(event.getLevel()))
 				.withExtra(THREAD_NAME, event.getThreadName());
 
 		// Message format (if message formatting is used)
 		if(eventMessage.getFormat() != null
-				&& eventMessage.getFormattedMessage() != null
-				&& !eventMessage.getFormattedMessage().equals(eventMessage.getFormat())) {
+				&& formattedMessage != null
+				&& !formattedMessage.equals(eventMessage.getFormat())) {
 			eventBuilder.withSentryInterface(new MessageInterface(
 					eventMessage.getFormat(),
 					formatMessageParameters(eventMessage.getParameters()),
-					eventMessage.getFormattedMessage()));
+					formattedMessage));
 		}
 
 		// Exception
@@ -127,7 +366,7 @@ public class ErrorSinkSentryAppender extends SentryAppender {
 					// If message in exception is empty, use the log message
 					String exceptionMessage = firstException.getExceptionMessage();
 					if(exceptionMessage == null || exceptionMessage.isEmpty()) {
-						exceptionMessage = eventMessage.getFormattedMessage();
+						exceptionMessage = formattedMessage;
 					}
 					firstException = new SentryException(
 							exceptionMessage,
@@ -154,17 +393,22 @@ public class ErrorSinkSentryAppender extends SentryAppender {
 			eventBuilder.withTag(LOG4J_MARKER, event.getMarker().getName());
 		}
 
+		// Similar events dropped by the rate limiter
+		if(context.getSuppressed() > 0) {
+			eventBuilder.withExtra("Suppressed similar events", context.getSuppressed());
+		}
+
 		// Run EventEditors
-		for(EventEditor eventEditor : eventEditors) {
-			try {
-				eventEditor.processEvent(eventBuilder, event);
-			} catch(Exception e) {
-				Log.error("EventEditor", eventEditor.getClass().getName(), "failed:", ExceptionUtils.getStackTrace(e));
+		long start = System.nanoTime();
+		for(EditorMonitor monitor : eventEditors.getEditors()) {
+			if(monitor.isEnabled()) {
+				monitor.process(eventBuilder, context);
 			}
 		}
 
+		ErrorSink.getStatistics().getEditorLatency().recordSince(start);
+
 		Log.debug("Sending event to sentry:", eventBuilder);
-		ErrorSink.getPlugin().increaseMessageSent();
 		return eventBuilder;
 	}
 }
@@ -0,0 +1,246 @@
+package me.wiefferink.errorsink.common;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An event that is being turned into a Sentry event, together with the information captured for it on the logging thread
+ * Created once when the appender receives the event, the filter, rules and editors all use it,
+ * so formatting the message and rendering the exception happens at most once per event
+ * The RuleSet is read once when the context is created, a reload during the event does not mix rules of two configs
+ */
+public class EventContext {
+
+	private static boolean hasImmutableMethod;
+	static {
+		// Test if LogEvent has toImmutable(), missing in old log4j versions
+		try {
+			LogEvent.class.getMethod("toImmutable");
+			hasImmutableMethod = true;
+		} catch(Exception ignored) {
+		}
+	}
+
+	private final LogEvent event;
+	// String, Message or other Object, formatted when needed
+	private final Object messageSource;
+	private final Object[] parameters;
+	private final Level level;
+	private final Throwable throwable;
+	private final String threadName;
+	private final String loggerName;
+	private final RuleSet ruleSet;
+	private volatile String formattedMessage;
+	private volatile boolean formatted;
+	private volatile ThrowableText throwableText;
+	private Map<EventEditor, Object> captures;
+	private long suppressed;
+
+	/**
+	 * Constructor
+	 * @param event The event
+	 */
+	public EventContext(LogEvent event) {
+		this(event, event.getMessage(), null, event.getLevel(), event.getThrown(), event.getThreadName(), event.getLoggerName(), ErrorSink.getRuleSet());
+	}
+
+	private EventContext(LogEvent event, Object messageSource, Object[] parameters, Level level, Throwable throwable, String threadName, String loggerName, RuleSet ruleSet) {
+		this.event = event;
+		this.messageSource = messageSource;
+		this.parameters = parameters;
+		this.level = level;
+		this.throwable = throwable;
+		this.threadName = threadName;
+		this.loggerName = loggerName;
+		this.ruleSet = ruleSet;
+	}
+
+	/**
+	 * Create a context for matching only, for a message that has no LogEvent
+	 * @param message    The message, a String, Message or other Object
+	 * @param parameters The parameters of a String message, or null
+	 * @param level      The level of the message
+	 * @param throwable  The exception of the message
+	 * @param threadName The name of the thread
+	 * @param loggerName The name of the logger
+	 * @return The context, {@link #getEvent()} returns null
+	 */
+	public static EventContext forMatching(Object message, Object[] parameters, Level level, Throwable throwable, String threadName, String loggerName) {
+		return new EventContext(null, message, parameters, level, throwable, threadName, loggerName, ErrorSink.getRuleSet());
+	}
+
+	/**
+	 * Get a copy of this context that is safe to keep after logging is done, see {@link #toImmutable(LogEvent)}
+	 * Already formatted or rendered text and the RuleSet are kept, captures and suppressed count are not copied
+	 * @return The copy
+	 */
+	public EventContext toImmutable() {
+		LogEvent copy = toImmutable(event);
+		EventContext result = new EventContext(copy, copy.getMessage(), null, copy.getLevel(), copy.getThrown(), copy.getThreadName(), copy.getLoggerName(), ruleSet);
+		if(formatted) {
+			result.formattedMessage = formattedMessage;
+			result.formatted = true;
+		}
+		result.throwableText = throwableText;
+		return result;
+	}
+
+	/**
+	 * Get a copy of an event that is safe to keep after logging is done
+	 * Log4j might reuse the LogEvent instance for the next event
+	 * @param event The event to copy
+	 * @return An immutable copy of the event, or the event itself if this log4j version does not support copying
+	 */
+	public static LogEvent toImmutable(LogEvent event) {
+		if(hasImmutableMethod) {
+			return event.toImmutable();
+		}
+		return event;
+	}
+
+	/**
+	 * Get the event
+	 * @return The event, or null for a context created with {@link #forMatching(Object, Object[], Level, Throwable, String, String)}
+	 */
+	public LogEvent getEvent() {
+		return event;
+	}
+
+	/**
+	 * Get the filters and rules to use for this event
+	 * @return The RuleSet that was active when the event was logged
+	 */
+	public RuleSet getRuleSet() {
+		return ruleSet;
+	}
+
+	/**
+	 * Get the formatted message, formatting it on first use
+	 * @return The formatted message, or null if the event has no message
+	 */
+	public String getFormattedMessage() {
+		if(!formatted) {
+			formattedMessage = format(messageSource, parameters);
+			formatted = true;
+		}
+		return formattedMessage;
+	}
+
+	/**
+	 * Format a message
+	 * @param message    The message, a String, Message or other Object
+	 * @param parameters The parameters of a String message, or null
+	 * @return The formatted message
+	 */
+	private static String format(Object message, Object[] parameters) {
+		if(message == null) {
+			return null;
+		}
+		if(message instanceof Message) {
+			return ((Message) message).getFormattedMessage();
+		}
+		if(parameters != null) {
+			return ParameterizedMessage.format((String) message, parameters);
+		}
+		return message.toString();
+	}
+
+	/**
+	 * Get the text of the exception, rendered on first use
+	 * @return The text of the exception, or null if the event has no exception
+	 */
+	public ThrowableText getThrowableText() {
+		ThrowableText result = throwableText;
+		if(result == null && throwable != null) {
+			result = ThrowableText.of(throwable);
+			throwableText = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the exception of the event
+	 * @return The exception, or null if the event has no exception
+	 */
+	public Throwable getThrowable() {
+		return throwable;
+	}
+
+	/**
+	 * Get the level of the event
+	 * @return The level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Get the level of the event as number
+	 * @return The level as returned by {@link Level#intLevel()}
+	 */
+	public int getIntLevel() {
+		return level.intLevel();
+	}
+
+	/**
+	 * Get the name of the thread that logged the event
+	 * @return The thread name, or null if unknown
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * Get the name of the logger of the event
+	 * @return The logger name
+	 */
+	public String getLoggerName() {
+		return loggerName;
+	}
+
+	/**
+	 * Get the number of similar events that have been dropped by rate limiting since the last one that has been sent
+	 * @return The number of dropped similar events
+	 */
+	public long getSuppressed() {
+		return suppressed;
+	}
+
+	/**
+	 * Set the number of similar events that have been dropped by rate limiting since the last one that has been sent
+	 * @param suppressed The number of dropped similar events
+	 */
+	public void setSuppressed(long suppressed) {
+		this.suppressed = suppressed;
+	}
+
+	/**
+	 * Store information captured by an EventEditor
+	 * @param editor  The editor that captured the information
+	 * @param capture The captured information
+	 */
+	public synchronized void setCapture(EventEditor editor, Object capture) {
+		if(captures == null) {
+			captures = new IdentityHashMap<>(4);
+		}
+		captures.put(editor, capture);
+	}
+
+	/**
+	 * Get information captured by an EventEditor
+	 * @param editor The editor that captured the information
+	 * @return The captured information, or null if nothing has been captured
+	 */
+	public synchronized Object getCapture(EventEditor editor) {
+		if(captures == null) {
+			return null;
+		}
+		return captures.get(editor);
+	}
+
+}
@@ -6,7 +6,6 @@ import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 import org.apache.logging.log4j.core.LogEvent;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +15,14 @@ import java.util.TreeMap;
 
 public abstract class EventEditor {
 
+	// Editors run from low to high priority, later editors can override what earlier ones set
+	// Adding information about the server
+	public static final int PRIORITY_INFORMATION = 100;
+	// Default for editors that do not specify a priority
+	public static final int PRIORITY_DEFAULT = 500;
+	// Rules from the config, these should be able to override everything
+	public static final int PRIORITY_RULES = 1000;
+
 	private Random random;
 
 	public EventEditor() {
@@ -29,6 +36,31 @@ public abstract class EventEditor {
 	 */
 	public abstract void processEvent(EventBuilder builder, LogEvent event);
 
+	/**
+	 * Capture information that is only available on the thread that logs the event
+	 * Called before {@link #processEvent(EventBuilder, EventContext)}, which might run on another thread
+	 * @param context The event to capture information for, use {@link EventContext#setCapture(EventEditor, Object)} to store it
+	 */
+	public void captureEvent(EventContext context) {
+	}
+
+	/**
+	 * Process an incoming event, using the information captured by {@link #captureEvent(EventContext)}
+	 * @param builder The builder to apply changes to
+	 * @param context The event that is happening
+	 */
+	public void processEvent(EventBuilder builder, EventContext context) {
+		processEvent(builder, context.getEvent());
+	}
+
+	/**
+	 * Get the random used for {random} replacements
+	 * @return The random
+	 */
+	protected Random getRandom() {
+		return random;
+	}
+
 	/**
 	 * Stop operation and cleanup
 	 */
@@ -69,6 +101,20 @@ public abstract class EventEditor {
 		}
 	}
 
+	/**
+	 * Compile a string to a template
+	 * Not cached, strings can contain per-event text. Keep the result when rendering the same string repeatedly
+	 *
+	 * @param source The string to get the template for
+	 * @return The compiled template, null when source is null
+	 */
+	public Template getTemplate(String source) {
+		if(source == null) {
+			return null;
+		}
+		return Template.compile(source);
+	}
+
 	/**
 	 * Apply replacements to a target string
 	 *
@@ -80,16 +126,7 @@ public abstract class EventEditor {
 		if(target == null) {
 			return null;
 		}
-
-		// Apply given replacements
-		for(String replaceKey : replacements.keySet()) {
-			target = target.replace("{" + replaceKey + "}", replacements.get(replaceKey));
-		}
-
-		// Apply static replacements
-		target = target.replace("{random}", new BigInteger(130, random).toString(32));
-
-		return target;
+		return getTemplate(target).render(replacements, random);
 	}
 
 	/**
@@ -103,7 +140,7 @@ public abstract class EventEditor {
 		if(target == null) {
 			return null;
 		}
-		List<String> resultList = new ArrayList<>();
+		List<String> resultList = new ArrayList<>(target.size());
 		for(String entry : target) {
 			resultList.add(applyReplacements(entry, replacements));
 		}
@@ -0,0 +1,156 @@
+package me.wiefferink.errorsink.common;
+
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue with worker threads that build and send events in the background
+ */
+public class EventPipeline {
+
+	/**
+	 * What to do with a new event when the queue is full
+	 */
+	public enum OverflowPolicy {
+		// Remove the oldest waiting event to make room
+		DROP_OLDEST,
+		// Drop the new event
+		DROP_NEWEST,
+		// Wait on the logging thread until there is room
+		BLOCK
+	}
+
+	private final BlockingQueue<EventContext> queue;
+	private final OverflowPolicy overflowPolicy;
+	private final Consumer<EventContext> handler;
+	private final Thread[] workers;
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean running = true;
+
+	/**
+	 * Constructor, starts the worker threads
+	 * @param threads        The number of worker threads
+	 * @param queueSize      The maximum number of waiting events
+	 * @param overflowPolicy What to do when the queue is full
+	 * @param handler        Handler that builds and sends an event
+	 */
+	public EventPipeline(int threads, int queueSize, OverflowPolicy overflowPolicy, Consumer<EventContext> handler) {
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+		this.overflowPolicy = overflowPolicy;
+		this.handler = handler;
+
+		workers = new Thread[Math.max(1, threads)];
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(this::work, "ErrorSink event sender #" + (i + 1));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Queue an event
+	 * @param context The event to queue
+	 */
+	public void submit(EventContext context) {
+		if(!running) {
+			drop();
+			return;
+		}
+
+		switch(overflowPolicy) {
+			case BLOCK:
+				try {
+					queue.put(context);
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					drop();
+				}
+				break;
+			case DROP_NEWEST:
+				if(!queue.offer(context)) {
+					drop();
+				}
+				break;
+			case DROP_OLDEST:
+				while(!queue.offer(context)) {
+					if(queue.poll() != null) {
+						drop();
+					}
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Count a dropped event, warning about it now and then
+	 */
+	private void drop() {
+		long total = dropped.incrementAndGet();
+		if(total == 1 || total % 1000 == 0) {
+			Log.warn("Event queue is full, dropped", total, "events so far (increase async.queueSize or async.threads in the config)");
+		}
+	}
+
+	/**
+	 * Loop of the worker threads
+	 */
+	private void work() {
+		while(running || !queue.isEmpty()) {
+			EventContext context;
+			try {
+				context = queue.poll(1, TimeUnit.SECONDS);
+			} catch(InterruptedException e) {
+				continue;
+			}
+			if(context == null) {
+				continue;
+			}
+
+			try {
+				handler.accept(context);
+			} catch(Exception e) {
+				Log.error("Failed to handle event in the background:", ExceptionUtils.getStackTrace(e));
+			}
+		}
+	}
+
+	/**
+	 * Get the number of events waiting to be sent
+	 * @return The queue depth
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Get the number of events dropped because the queue was full
+	 * @return The number of dropped events
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Stop accepting events and wait a bit for the waiting events to be sent
+	 */
+	public void shutdown() {
+		running = false;
+		for(Thread worker : workers) {
+			try {
+				worker.join(TimeUnit.SECONDS.toMillis(5));
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		if(!queue.isEmpty()) {
+			Log.warn("Stopped with", queue.size(), "events left unsent");
+		}
+	}
+
+}
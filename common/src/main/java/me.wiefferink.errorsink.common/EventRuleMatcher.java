@@ -1,6 +1,8 @@
 package me.wiefferink.errorsink.common;
 
 import com.google.common.reflect.TypeToken;
+import me.wiefferink.errorsink.common.matching.RuleCaptures;
+import me.wiefferink.errorsink.common.matching.RulePattern;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -8,6 +10,7 @@ import org.apache.logging.log4j.Level;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -19,14 +22,14 @@ import java.util.regex.PatternSyntaxException;
 
 public class EventRuleMatcher {
 
-	// Regex to find named groups inside a regex (the named group-name might be escaped with '\Q'<group>'\E', which this also accounts for)
-	private static final Pattern NAMED_GROUPS = Pattern.compile("\\(\\?<(\\\\Q)?(?<group>[a-zA-Z][a-zA-Z0-9]*)(\\\\E)?>");
-
 	private Set<Integer> levelMatches;
-	private List<Pattern> messagePatterns;
-	private List<Pattern> exceptionPatterns;
-	private List<Pattern> threadPatterns;
-	private List<Pattern> loggerNamePatterns;
+	private List<RulePattern> messagePatterns;
+	private List<RulePattern> exceptionPatterns;
+	private List<RulePattern> threadPatterns;
+	private List<RulePattern> loggerNamePatterns;
+	private String[] requiredMessageLiterals;
+	// Maximum number of groups a match can capture
+	private int captureCount;
 
 	private ConfigurationNode criteria;
 	private Map<String, String> parts;
@@ -78,6 +81,8 @@ public class EventRuleMatcher {
 		// Message matching preparation
 		messagePatterns = getRegexPatterns(criteria, "matchMessage");
 		Log.debug("  messageRegexes:", messagePatterns);
+		requiredMessageLiterals = getRequiredLiterals(messagePatterns);
+		Log.debug("  messageLiterals:", requiredMessageLiterals == null ? null : Arrays.toString(requiredMessageLiterals));
 
 		// Exception matching preparation
 		exceptionPatterns = getRegexPatterns(criteria, "matchException");
@@ -91,6 +96,22 @@ public class EventRuleMatcher {
 		loggerNamePatterns = getRegexPatterns(criteria, "matchLoggerName");
 		Log.debug("  loggerNameRegexes:", loggerNamePatterns);
 
+		captureCount = getCaptureCount(messagePatterns) + getCaptureCount(exceptionPatterns) + getCaptureCount(threadPatterns) + getCaptureCount(loggerNamePatterns);
+	}
+
+	/**
+	 * Get the maximum number of captures a list of patterns can produce (only one of them gets used)
+	 * @param patterns The patterns to check
+	 * @return The highest capture count of the patterns
+	 */
+	private int getCaptureCount(List<RulePattern> patterns) {
+		int result = 0;
+		if(patterns != null) {
+			for(RulePattern pattern : patterns) {
+				result = Math.max(result, pattern.getCaptureCount());
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -100,8 +121,8 @@ public class EventRuleMatcher {
 	 * @param path    The path in the section to try get the regexes form
 	 * @return List of compiled regexes if the path has one or a list of strings, otherwise null
 	 */
-	private List<Pattern> getRegexPatterns(ConfigurationNode section, String... path) {
-		List<Pattern> result = null;
+	private List<RulePattern> getRegexPatterns(ConfigurationNode section, String... path) {
+		List<RulePattern> result = null;
 		List<String> regexes = null;
 		try {
 			regexes = section.getNode(path).getList(TypeToken.of(String.class));
@@ -117,9 +138,11 @@ public class EventRuleMatcher {
 					regex = regex.replace(partKey, parts.get(partKey));
 				}
 
-				// Compile regex
+				// Compile regex, literal regexes get matched without the regex engine
 				try {
-					result.add(Pattern.compile(regex));
+					RulePattern pattern = RulePattern.compile(regex);
+					Log.debug("    " + pattern.getKind() + ":", pattern);
+					result.add(pattern);
 				} catch(PatternSyntaxException e) {
 					Log.warn("Incorrect regex: \"" + regex + "\" at", Arrays.toString(criteria.getPath()) + "." + path + ":", ExceptionUtils.getStackTrace(e));
 				}
@@ -128,41 +151,161 @@ public class EventRuleMatcher {
 		return result;
 	}
 
+	/**
+	 * Get the literals that are required for patterns to match
+	 * @param patterns The patterns to get the literals for
+	 * @return The required literal of each pattern, or null if a pattern has no required literal
+	 */
+	private String[] getRequiredLiterals(List<RulePattern> patterns) {
+		if(patterns == null) {
+			return null;
+		}
+		String[] result = new String[patterns.size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = patterns.get(i).getRequiredLiteral();
+			if(result[i] == null) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the literals of which the message should contain at least one to match
+	 * Used to skip matchers before running their regexes
+	 * @return The literals, or null if matching of this rule cannot be ruled out based on literals
+	 */
+	public String[] getRequiredMessageLiterals() {
+		return requiredMessageLiterals;
+	}
+
+	/**
+	 * Check if this matcher can match events of a level
+	 * @param intLevel The level to check, as returned by {@link Level#intLevel()}
+	 * @return true if the level criteria allow the level, otherwise false
+	 */
+	public boolean canMatchLevel(int intLevel) {
+		return levelMatches == null || levelMatches.contains(intLevel);
+	}
+
+	/**
+	 * Check if this matcher only has level criteria
+	 * @return true if matching only depends on the level of the event, otherwise false
+	 */
+	public boolean isLevelOnly() {
+		return levelMatches != null
+				&& messagePatterns == null
+				&& exceptionPatterns == null
+				&& threadPatterns == null
+				&& loggerNamePatterns == null;
+	}
+
+	/**
+	 * Check if this matcher needs the formatted message of an event
+	 * @return true if the matcher has message patterns, otherwise false
+	 */
+	public boolean usesMessage() {
+		return messagePatterns != null;
+	}
+
+	/**
+	 * Check if this matcher needs the exception of an event
+	 * @return true if the matcher has exception patterns, otherwise false
+	 */
+	public boolean usesException() {
+		return exceptionPatterns != null;
+	}
+
+	/**
+	 * Check if this matcher needs the thread name of an event
+	 * @return true if the matcher has thread name patterns, otherwise false
+	 */
+	public boolean usesThreadName() {
+		return threadPatterns != null;
+	}
+
 	/**
 	 * Match a list of patterns to an input
 	 *
 	 * @param input    The input to check
 	 * @param patterns The patterns to match
+	 * @param replacements The map to add the captured groups to, null to not collect groups
 	 * @return true if one of the patterns matches, otherwise false
 	 */
-	private boolean matchesAny(String input, List<Pattern> patterns, Map<String, String> replacements) {
+	private boolean matchesAny(String input, List<RulePattern> patterns, Map<String, String> replacements) {
 		if(input == null || patterns == null) {
 			return false;
 		}
 
-		for(Pattern pattern : patterns) {
-			Matcher matcher = pattern.matcher(input);
-			if(matcher.find()) {
-				// Collect named matcher groups
-				Matcher groupMatcher = NAMED_GROUPS.matcher(pattern.pattern());
-				while(groupMatcher.find()) {
-					try {
-						replacements.put(groupMatcher.group("group"), matcher.group(groupMatcher.group("group")));
-					} catch(IllegalArgumentException ignored) {
-						ignored.printStackTrace();
-					}
-				}
+		for(RulePattern pattern : patterns) {
+			if(matches(input, pattern, replacements)) {
+				return true;
+			}
+		}
+		return false;
+	}
 
-				// Collect numbered matcher groups
-				for(int groupIndex = 1; groupIndex <= matcher.groupCount(); groupIndex++) {
-					replacements.put(groupIndex + "", matcher.group(groupIndex));
-				}
+	/**
+	 * Match a pattern to an input
+	 *
+	 * @param input        The input to check
+	 * @param pattern      The pattern to match
+	 * @param replacements The map to add the captured groups to, null to not collect groups
+	 * @return true if the pattern matches, otherwise false
+	 */
+	private boolean matches(String input, RulePattern pattern, Map<String, String> replacements) {
+		// Literals have no groups to collect
+		if(pattern.isLiteral()) {
+			return pattern.matchesLiteral(input);
+		}
+
+		Matcher matcher = pattern.matcher(input);
+		if(!matcher.find()) {
+			return false;
+		}
+		if(replacements != null) {
+			pattern.collectGroups(matcher, replacements);
+		}
+		return true;
+	}
+
+	/**
+	 * Match the exception patterns to the text of an exception
+	 * Patterns that allow it are first matched against the first line, which avoids rendering the full stacktrace
+	 * @param text         The text of the exception
+	 * @param replacements The map to add the captured groups to, null to not collect groups
+	 * @return true if one of the patterns matches, otherwise false
+	 */
+	private boolean matchesException(ThrowableText text, Map<String, String> replacements) {
+		for(RulePattern pattern : exceptionPatterns) {
+			if(pattern.canMatchPrefix() && matches(text.getFirstLine(), pattern, null)) {
+				return true;
+			}
+			if(matches(text.getFull(), pattern, replacements)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Match a rule to an event, only formatting the message and rendering the exception if the rule needs them
+	 * @param context The event to match
+	 * @return A map with the captured groups if a match is found, otherwise null
+	 */
+	public Map<String, String> matches(EventContext context) {
+		if(!canMatchLevel(context.getIntLevel())) {
+			return null;
+		}
+		return matches(
+				messagePatterns == null ? null : context.getFormattedMessage(),
+				context.getLevel(),
+				exceptionPatterns == null ? null : context.getThrowableText(),
+				context.getThreadName(),
+				context.getLoggerName()
+		);
+	}
+
 	/**
 	 * Match a rule to an event
 	 * @param message     The message to match
@@ -173,20 +316,33 @@ public class EventRuleMatcher {
 	 * @return A map with the captured groups if a match is found, otherwise null
 	 */
 	public Map<String, String> matches(String message, Level level, Throwable throwable, String threadName, String loggerName) {
-		Map<String, String> groups = new HashMap<>();
+		return matches(message, level, ThrowableText.of(throwable), threadName, loggerName);
+	}
 
+	/**
+	 * Match a rule to an event
+	 * @param message     The message to match
+	 * @param level       The level to match
+	 * @param throwable   The text of the exception to match
+	 * @param threadName  The thread name to match
+	 * @param loggerName  The logger name to match
+	 * @return A map with the captured groups if a match is found, otherwise null
+	 */
+	public Map<String, String> matches(String message, Level level, ThrowableText throwable, String threadName, String loggerName) {
 		// Level match
 		if(levelMatches != null && !levelMatches.contains(level.intLevel())) {
 			return null;
 		}
 
+		Map<String, String> groups = captureCount == 0 ? null : new RuleCaptures(captureCount);
+
 		// Message match
 		if(messagePatterns != null && !matchesAny(message, messagePatterns, groups)) {
 			return null;
 		}
 
 		// Exception match
-		if(exceptionPatterns != null && (throwable == null || !matchesAny(ExceptionUtils.getStackTrace(throwable), exceptionPatterns, groups))) {
+		if(exceptionPatterns != null && (throwable == null || !matchesException(throwable, groups))) {
 			return null;
 		}
 
@@ -200,7 +356,7 @@ public class EventRuleMatcher {
 			return null;
 		}
 
-		return groups;
+		return groups == null ? Collections.<String, String>emptyMap() : groups;
 	}
 
 	@Override
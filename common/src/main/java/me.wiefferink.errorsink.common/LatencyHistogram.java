@@ -0,0 +1,110 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with power of two buckets, recording is lock-free and cheap enough for the logging thread
+ * Percentiles are accurate to a factor of two, enough to see which stage is slow
+ */
+public class LatencyHistogram {
+
+	// Bucket i holds durations in [2^(i-1), 2^i) nanoseconds, bucket 0 holds 0
+	private static final int BUCKETS = 64;
+
+	private final LongAdder[] buckets;
+	private final LongAdder count;
+	private final LongAdder total;
+
+	public LatencyHistogram() {
+		buckets = new LongAdder[BUCKETS];
+		for(int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+		count = new LongAdder();
+		total = new LongAdder();
+	}
+
+	/**
+	 * Record a duration
+	 * @param nanos The duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		if(nanos < 0) {
+			nanos = 0;
+		}
+		buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+		count.increment();
+		total.add(nanos);
+	}
+
+	/**
+	 * Record the duration since a start time
+	 * @param startNanos The start time from {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Get the number of recorded durations
+	 * @return The number of durations
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Get the average duration
+	 * @return The average in nanoseconds, 0 if nothing is recorded
+	 */
+	public long getAverage() {
+		long currentCount = count.sum();
+		return currentCount == 0 ? 0 : total.sum() / currentCount;
+	}
+
+	/**
+	 * Get a percentile of the recorded durations
+	 * @param percentile The percentile, between 0 and 100
+	 * @return The upper bound of the bucket the percentile falls in, in nanoseconds, 0 if nothing is recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long currentCount = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			currentCount += counts[i];
+		}
+		if(currentCount == 0) {
+			return 0;
+		}
+
+		long target = (long) Math.ceil(currentCount * Math.min(100, Math.max(0, percentile)) / 100);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if(seen >= target && counts[i] > 0) {
+				return i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Describe the histogram for display
+	 * @return Count, average, p50, p99 and p99.9 in microseconds
+	 */
+	@Override
+	public String toString() {
+		return "count=" + getCount()
+				+ " avg=" + micros(getAverage())
+				+ " p50=" + micros(getPercentile(50))
+				+ " p99=" + micros(getPercentile(99))
+				+ " p99.9=" + micros(getPercentile(99.9));
+	}
+
+	private static String micros(long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+	}
+
+}
@@ -0,0 +1,94 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter per key, keeping track of a bounded number of keys
+ * Keys that have not been seen for the longest time are forgotten first
+ */
+public class RateLimiter {
+
+	private final double burst;
+	private final double tokensPerNano;
+	private final Map<Object, Bucket> buckets;
+	private long limited;
+
+	/**
+	 * Constructor
+	 * @param burst       The number of events that can pass at once
+	 * @param perMinute   The number of events that can pass per minute after the burst is used up
+	 * @param maximumKeys The maximum number of keys to keep track of
+	 */
+	public RateLimiter(int burst, double perMinute, int maximumKeys) {
+		this.burst = Math.max(1, burst);
+		this.tokensPerNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+		this.buckets = new LinkedHashMap<Object, Bucket>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Bucket> eldest) {
+				return size() > maximumKeys;
+			}
+		};
+	}
+
+	/**
+	 * Try to let an event pass
+	 * @param key The key of the event, events with the same key share their limit
+	 * @return -1 if the event should be dropped, otherwise the number of events dropped since the last event that passed
+	 */
+	public long acquire(Object key) {
+		return acquire(key, System.nanoTime());
+	}
+
+	/**
+	 * Try to let an event pass at a given time
+	 * Times going back (events handed in slightly out of order) do not refill the bucket
+	 * @param key The key of the event, events with the same key share their limit
+	 * @param now The time of the event in nanoseconds, only differences between times are used
+	 * @return -1 if the event should be dropped, otherwise the number of events dropped since the last event that passed
+	 */
+	public synchronized long acquire(Object key, long now) {
+		Bucket bucket = buckets.get(key);
+		if(bucket == null) {
+			bucket = new Bucket(burst, now);
+			buckets.put(key, bucket);
+		}
+
+		// Refill
+		if(now > bucket.updated) {
+			bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.updated) * tokensPerNano);
+			bucket.updated = now;
+		}
+
+		if(bucket.tokens < 1) {
+			bucket.suppressed++;
+			limited++;
+			return -1;
+		}
+		bucket.tokens--;
+		long suppressed = bucket.suppressed;
+		bucket.suppressed = 0;
+		return suppressed;
+	}
+
+	/**
+	 * Get the total number of events that have been dropped
+	 * @return The number of dropped events
+	 */
+	public synchronized long getLimited() {
+		return limited;
+	}
+
+	private static class Bucket {
+		private double tokens;
+		private long updated;
+		private long suppressed;
+
+		private Bucket(double tokens, long updated) {
+			this.tokens = tokens;
+			this.updated = updated;
+		}
+	}
+
+}
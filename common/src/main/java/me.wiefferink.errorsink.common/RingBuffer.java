@@ -0,0 +1,125 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed capacity buffer keeping the most recently added values, safe for many concurrent writers without locking
+ * Values and their sequence numbers are kept in preallocated parallel arrays, adding a value does not allocate
+ * @param <T> The type of the values
+ */
+public class RingBuffer<T> {
+
+	// Sequence value of a slot that has never been written
+	private static final long EMPTY = -1;
+
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<T> values;
+	// Per slot: the sequence number of the stored value, EMPTY, or writing(sequence) while a writer stores a value
+	private final AtomicLongArray sequences;
+	// Sequence number of the next value to add
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Constructor
+	 * @param capacity The number of values to keep
+	 */
+	public RingBuffer(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		int size = 1;
+		while(size < this.capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.values = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			sequences.set(i, EMPTY);
+		}
+	}
+
+	/**
+	 * Add a value, replacing the oldest value when the buffer is full
+	 * @param value The value to add
+	 */
+	public void add(T value) {
+		long claimed = sequence.getAndIncrement();
+		int index = (int) (claimed & mask);
+		while(true) {
+			long current = sequences.get(index);
+			if(current < EMPTY) {
+				// Another writer is storing a value, only wait for it when it is older
+				if(getWritingSequence(current) > claimed) {
+					return;
+				}
+				Thread.yield();
+				continue;
+			}
+			// A writer that wrapped around already stored a newer value
+			if(current > claimed) {
+				return;
+			}
+			if(sequences.compareAndSet(index, current, writing(claimed))) {
+				values.set(index, value);
+				// Publishes the value to readers
+				sequences.set(index, claimed);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get the sequence marker of a slot that is being written
+	 * @param sequence The sequence number of the value being written
+	 * @return The marker, always below EMPTY
+	 */
+	private static long writing(long sequence) {
+		return -sequence - 2;
+	}
+
+	/**
+	 * Get the sequence number of the value being written from a marker
+	 * @param marker The marker as returned by {@link #writing(long)}
+	 * @return The sequence number
+	 */
+	private static long getWritingSequence(long marker) {
+		return -marker - 2;
+	}
+
+	/**
+	 * Get the values currently in the buffer
+	 * Values that are still being added by another thread are left out
+	 * @return The values, oldest first
+	 */
+	public List<T> snapshot() {
+		long end = sequence.get();
+		long start = Math.max(0, end - capacity);
+		List<T> result = new ArrayList<>((int) (end - start));
+		for(long current = start; current < end; current++) {
+			int index = (int) (current & mask);
+			// Skip slots that are not written yet, or already overwritten by a newer value
+			if(sequences.get(index) != current) {
+				continue;
+			}
+			T value = values.get(index);
+			// A writer changes the sequence before replacing the value, and sequences never repeat
+			if(sequences.get(index) == current) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the number of values this buffer keeps
+	 * @return The capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+}
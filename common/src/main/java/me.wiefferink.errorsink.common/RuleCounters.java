@@ -0,0 +1,49 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of events each filter dropped and each rule was applied to, indexed by the ids of a RuleTable
+ * Counting is an array lookup and a LongAdder increment, names are only used when building a report
+ */
+public class RuleCounters {
+
+	private final RuleTable table;
+	private final LongAdder[] counts;
+
+	/**
+	 * Constructor
+	 * @param table The table the ids are from
+	 */
+	public RuleCounters(RuleTable table) {
+		this.table = table;
+		counts = new LongAdder[table.size()];
+		for(int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Count an event for a filter or rule
+	 * @param id The id of the filter or rule in the RuleTable
+	 */
+	public void increment(int id) {
+		counts[id].increment();
+	}
+
+	/**
+	 * Add the counts of a section to a map
+	 * @param section The section to add the counts of
+	 * @param result  Map from the name of the filter or rule to its count, filters or rules without events are left out
+	 */
+	public void addTo(RuleTable.Section section, Map<String, Long> result) {
+		for(int id = table.getFirstId(section); id < table.getEndId(section); id++) {
+			long count = counts[id].sum();
+			if(count > 0) {
+				result.merge(table.getName(id), count, Long::sum);
+			}
+		}
+	}
+
+}
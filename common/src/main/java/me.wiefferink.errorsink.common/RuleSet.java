@@ -0,0 +1,191 @@
+package me.wiefferink.errorsink.common;
+
+import me.wiefferink.errorsink.common.editors.BreadcrumbPlan;
+import me.wiefferink.errorsink.common.editors.RulePlan;
+import me.wiefferink.errorsink.common.filters.FilterChain;
+import me.wiefferink.errorsink.common.matching.MatchCache;
+import ninja.leaping.configurate.ConfigurationNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All filters and rules of a config, compiled once
+ * A RuleSet is never changed after compiling, reloading the config compiles a new one and swaps it in as a whole,
+ * an event that already read the RuleSet keeps using it until it is done
+ */
+public class RuleSet {
+
+	private final RuleTable table;
+	private final RuleCounters counters;
+	private final FilterChain filterChain;
+	private final RulePlan[] rulePlans;
+	// RuleTable id of each rule plan
+	private final int[] rulePlanIds;
+	private final EventRuleMatcher[] breadcrumbFilters;
+	private final BreadcrumbPlan[] breadcrumbPlans;
+	// Captures of the events.rules for recently seen lines, null when disabled
+	private final MatchCache<Map<String, String>[]> ruleCache;
+	private final boolean rulesUseException;
+
+	private RuleSet(ConfigurationNode root) {
+		int cacheSize = root.getNode("matchCache", "size").getInt(1024);
+		table = RuleTable.compile(root);
+		counters = new RuleCounters(table);
+		filterChain = new FilterChain(root, table, cacheSize, counters);
+
+		// Event rules
+		List<RulePlan> rulePlanList = new ArrayList<>();
+		List<Integer> rulePlanIdList = new ArrayList<>();
+		for(Map.Entry<Object, ? extends ConfigurationNode> rule : root.getNode(RuleTable.Section.EVENT_RULES.getPath()).getChildrenMap().entrySet()) {
+			int id = table.getId(RuleTable.Section.EVENT_RULES, rule.getKey());
+			rulePlanList.add(RulePlan.compile(rule.getValue(), table.getMatcher(id)));
+			rulePlanIdList.add(id);
+		}
+		rulePlans = rulePlanList.toArray(new RulePlan[rulePlanList.size()]);
+		rulePlanIds = new int[rulePlanIdList.size()];
+		for(int i = 0; i < rulePlanIds.length; i++) {
+			rulePlanIds[i] = rulePlanIdList.get(i);
+		}
+
+		boolean useException = false;
+		boolean useThreadName = false;
+		for(RulePlan plan : rulePlans) {
+			useException |= plan.getMatcher().usesException();
+			useThreadName |= plan.getMatcher().usesThreadName();
+		}
+		rulesUseException = useException;
+		ruleCache = cacheSize > 0 && rulePlans.length > 0 ? new MatchCache<>(cacheSize, useThreadName) : null;
+
+		// Breadcrumb filters and rules
+		List<EventRuleMatcher> breadcrumbFilterList = table.getMatchers(RuleTable.Section.BREADCRUMB_FILTERS);
+		breadcrumbFilters = breadcrumbFilterList.toArray(new EventRuleMatcher[breadcrumbFilterList.size()]);
+
+		List<BreadcrumbPlan> breadcrumbPlanList = new ArrayList<>();
+		for(Map.Entry<Object, ? extends ConfigurationNode> rule : root.getNode(RuleTable.Section.BREADCRUMB_RULES.getPath()).getChildrenMap().entrySet()) {
+			breadcrumbPlanList.add(BreadcrumbPlan.compile(rule.getValue(), table.getMatcher(table.getId(RuleTable.Section.BREADCRUMB_RULES, rule.getKey()))));
+		}
+		breadcrumbPlans = breadcrumbPlanList.toArray(new BreadcrumbPlan[breadcrumbPlanList.size()]);
+	}
+
+	/**
+	 * Compile the filters and rules of a config
+	 * @param root The root of the config
+	 * @return The compiled RuleSet
+	 */
+	public static RuleSet compile(ConfigurationNode root) {
+		return new RuleSet(root);
+	}
+
+	/**
+	 * Get the matchers of all filters and rules
+	 * @return The table of matchers
+	 */
+	public RuleTable getRuleTable() {
+		return table;
+	}
+
+	/**
+	 * Get the events.filters, together with the events.rules that bypass them
+	 * @return The filter chain
+	 */
+	public FilterChain getFilterChain() {
+		return filterChain;
+	}
+
+	/**
+	 * Get the compiled events.rules
+	 * @return The rules, in config order
+	 */
+	public RulePlan[] getRulePlans() {
+		return rulePlans;
+	}
+
+	/**
+	 * Count an event a rule of {@link #getRulePlans()} has been applied to
+	 * @param index The index of the rule in {@link #getRulePlans()}
+	 */
+	public void ruleApplied(int index) {
+		counters.increment(rulePlanIds[index]);
+	}
+
+	/**
+	 * Get the number of events each filter dropped and each rule was applied to
+	 * @return The counters
+	 */
+	public RuleCounters getCounters() {
+		return counters;
+	}
+
+	/**
+	 * Get the cached results of the events.rules for an event, without matching them on a miss
+	 * @param context The event to get the results for
+	 * @return The results as returned by {@link #matchRules(EventContext)}, or null if the line is not cached
+	 */
+	public Map<String, String>[] getCachedRules(EventContext context) {
+		if(ruleCache == null || (rulesUseException && context.getThrowable() != null)) {
+			return null;
+		}
+		return ruleCache.peek(context);
+	}
+
+	/**
+	 * Match the events.rules to an event, using the cache for recently seen lines
+	 * @param context The event to match
+	 * @return The captured groups of each rule of {@link #getRulePlans()}, null for rules that do not match, do not modify
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, String>[] matchRules(EventContext context) {
+		// The exception is not part of the key, only cache when it does not matter
+		boolean cacheable = ruleCache != null && (!rulesUseException || context.getThrowable() == null);
+		if(cacheable) {
+			Map<String, String>[] cached = ruleCache.get(context);
+			if(cached != null) {
+				return cached;
+			}
+		}
+
+		Map<String, String>[] result = (Map<String, String>[]) new Map[rulePlans.length];
+		for(int i = 0; i < rulePlans.length; i++) {
+			result[i] = rulePlans[i].getMatcher().matches(context);
+		}
+		if(cacheable) {
+			ruleCache.put(context, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Check if the captures of events.rules are cached
+	 * @return true if {@link #matchRules(EventContext)} uses a cache, otherwise false
+	 */
+	public boolean hasRuleCache() {
+		return ruleCache != null;
+	}
+
+	/**
+	 * Get the cache of events.rules captures of recently seen lines
+	 * @return The cache, or null if it is disabled
+	 */
+	public MatchCache<Map<String, String>[]> getRuleCache() {
+		return ruleCache;
+	}
+
+	/**
+	 * Get the matchers of breadcrumbs.filters
+	 * @return The filters, in config order
+	 */
+	public EventRuleMatcher[] getBreadcrumbFilters() {
+		return breadcrumbFilters;
+	}
+
+	/**
+	 * Get the compiled breadcrumbs.rules
+	 * @return The rules, in config order
+	 */
+	public BreadcrumbPlan[] getBreadcrumbPlans() {
+		return breadcrumbPlans;
+	}
+
+}
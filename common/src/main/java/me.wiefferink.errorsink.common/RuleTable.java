@@ -0,0 +1,155 @@
+package me.wiefferink.errorsink.common;
+
+import ninja.leaping.configurate.ConfigurationNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The matchers of all filters and rules of a config, indexed by a dense id
+ * Ids are assigned when loading, in config order and grouped by section,
+ * so a section is a range of ids and callers only need arrays instead of hashing config paths.
+ * A RuleTable is never changed after compiling.
+ */
+public class RuleTable {
+
+	/**
+	 * The sections of the config that contain filters or rules
+	 */
+	public enum Section {
+		EVENT_FILTERS("events", "filters"),
+		EVENT_RULES("events", "rules"),
+		BREADCRUMB_FILTERS("breadcrumbs", "filters"),
+		BREADCRUMB_RULES("breadcrumbs", "rules");
+
+		private final Object[] path;
+
+		Section(Object... path) {
+			this.path = path;
+		}
+
+		/**
+		 * Get the config path of the section
+		 * @return The path
+		 */
+		public Object[] getPath() {
+			return path.clone();
+		}
+	}
+
+	// Indexed by id
+	private final EventRuleMatcher[] matchers;
+	private final String[] names;
+	// Section s has the ids from sectionStart[s] until sectionStart[s + 1]
+	private final int[] sectionStart;
+	private final List<List<EventRuleMatcher>> sectionLists;
+	// Only used when loading, to find the id of a rule by name
+	private final Map<String, Integer> ids;
+
+	private RuleTable(ConfigurationNode root) {
+		Section[] sections = Section.values();
+		List<EventRuleMatcher> matcherList = new ArrayList<>();
+		List<String> nameList = new ArrayList<>();
+		Map<String, Integer> idMap = new HashMap<>();
+		sectionStart = new int[sections.length + 1];
+		for(Section section : sections) {
+			sectionStart[section.ordinal()] = matcherList.size();
+			for(Map.Entry<Object, ? extends ConfigurationNode> rule : root.getNode(section.path).getChildrenMap().entrySet()) {
+				String name = section.path[0] + "." + section.path[1] + "." + rule.getKey();
+				idMap.put(name, matcherList.size());
+				nameList.add(name);
+				matcherList.add(new EventRuleMatcher(rule.getValue(), root.getNode("parts")));
+			}
+		}
+		sectionStart[sections.length] = matcherList.size();
+		matchers = matcherList.toArray(new EventRuleMatcher[matcherList.size()]);
+		names = nameList.toArray(new String[nameList.size()]);
+		ids = Collections.unmodifiableMap(idMap);
+
+		List<List<EventRuleMatcher>> lists = new ArrayList<>(sections.length);
+		for(Section section : sections) {
+			lists.add(Collections.unmodifiableList(Arrays.asList(
+					Arrays.copyOfRange(matchers, getFirstId(section), getEndId(section))
+			)));
+		}
+		sectionLists = Collections.unmodifiableList(lists);
+	}
+
+	/**
+	 * Compile the matchers of all filters and rules of a config
+	 * @param root The root of the config
+	 * @return The compiled table
+	 */
+	public static RuleTable compile(ConfigurationNode root) {
+		return new RuleTable(root);
+	}
+
+	/**
+	 * Get the number of filters and rules
+	 * @return The number of matchers, ids are 0 until this number
+	 */
+	public int size() {
+		return matchers.length;
+	}
+
+	/**
+	 * Get the matcher of a filter or rule
+	 * @param id The id of the filter or rule
+	 * @return The matcher
+	 */
+	public EventRuleMatcher getMatcher(int id) {
+		return matchers[id];
+	}
+
+	/**
+	 * Get the name of a filter or rule, to show in statistics and logging
+	 * @param id The id of the filter or rule
+	 * @return The config path separated by dots, like 'events.filters.spam'
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Get the id of a filter or rule
+	 * @param section The section the filter or rule is in
+	 * @param key     The key of the filter or rule in the section
+	 * @return The id, or -1 if there is no such filter or rule
+	 */
+	public int getId(Section section, Object key) {
+		Integer id = ids.get(section.path[0] + "." + section.path[1] + "." + key);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Get the first id of a section
+	 * @param section The section
+	 * @return The first id, equal to {@link #getEndId(Section)} if the section is empty
+	 */
+	public int getFirstId(Section section) {
+		return sectionStart[section.ordinal()];
+	}
+
+	/**
+	 * Get the id after the last id of a section
+	 * @param section The section
+	 * @return The id after the last one of the section
+	 */
+	public int getEndId(Section section) {
+		return sectionStart[section.ordinal() + 1];
+	}
+
+	/**
+	 * Get the matchers of a section
+	 * @param section The section
+	 * @return Unmodifiable list of the matchers, in config order
+	 */
+	public List<EventRuleMatcher> getMatchers(Section section) {
+		return sectionLists.get(section.ordinal());
+	}
+
+}
@@ -0,0 +1,57 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Information about the server that only changes when plugins are enabled or disabled
+ * Immutable, so it can be used from any thread without calling the server API
+ */
+public class ServerSnapshot {
+
+	private final SortedMap<String, String> loadedPlugins;
+	private final String serverVersion;
+	private final SortedMap<String, String> extraData;
+
+	private ServerSnapshot(SortedMap<String, String> loadedPlugins, String serverVersion, SortedMap<String, String> extraData) {
+		this.loadedPlugins = Collections.unmodifiableSortedMap(new TreeMap<>(loadedPlugins));
+		this.serverVersion = serverVersion;
+		this.extraData = Collections.unmodifiableSortedMap(new TreeMap<>(extraData));
+	}
+
+	/**
+	 * Collect the current information from the server
+	 * Should be called from the thread the server API can be used from
+	 * @param plugin The plugin to get the information from
+	 * @return The snapshot
+	 */
+	public static ServerSnapshot create(ErrorSinkPlugin plugin) {
+		return new ServerSnapshot(plugin.getLoadedPlugins(), plugin.getServerVersion(), plugin.getExtraData());
+	}
+
+	/**
+	 * Get the versions of the loaded plugins
+	 * @return Map from plugin name to version
+	 */
+	public SortedMap<String, String> getLoadedPlugins() {
+		return loadedPlugins;
+	}
+
+	/**
+	 * Get the version of the server API
+	 * @return The server version
+	 */
+	public String getServerVersion() {
+		return serverVersion;
+	}
+
+	/**
+	 * Get platform specific information about the server
+	 * @return Map from name to value
+	 */
+	public SortedMap<String, String> getExtraData() {
+		return extraData;
+	}
+
+}
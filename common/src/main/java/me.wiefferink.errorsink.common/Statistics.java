@@ -0,0 +1,168 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of the event pipeline, updated from any logging or sending thread
+ * Totals since the plugin started, readers that want intervals should keep the previous value
+ */
+public class Statistics {
+
+	private final LongAdder seen = new LongAdder();
+	private final LongAdder filtered = new LongAdder();
+	// Per filter and rule counts of RuleSets replaced by a reload, the active RuleSet counts itself
+	private final Map<String, Long> retiredFilteredByRule = new HashMap<>();
+	private final Map<String, Long> retiredMatchedByRule = new HashMap<>();
+	private final LongAdder rateLimited = new LongAdder();
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	private final LatencyHistogram filterLatency = new LatencyHistogram();
+	private final LatencyHistogram editorLatency = new LatencyHistogram();
+	private final LatencyHistogram sendLatency = new LatencyHistogram();
+
+	/**
+	 * Count an event that reached the filters
+	 */
+	public void eventSeen() {
+		seen.increment();
+	}
+
+	/**
+	 * Count an event dropped by a filter, the filter itself is counted in the {@link RuleCounters} of the RuleSet
+	 */
+	public void eventFiltered() {
+		filtered.increment();
+	}
+
+	/**
+	 * Keep the per filter and rule counts of a RuleSet that is replaced by a reload
+	 * Events still using the old RuleSet after this are not counted per filter and rule anymore
+	 * @param counters The counters of the replaced RuleSet
+	 */
+	public synchronized void retire(RuleCounters counters) {
+		counters.addTo(RuleTable.Section.EVENT_FILTERS, retiredFilteredByRule);
+		counters.addTo(RuleTable.Section.EVENT_RULES, retiredMatchedByRule);
+	}
+
+	/**
+	 * Count an event dropped by the rate limiter
+	 */
+	public void eventRateLimited() {
+		rateLimited.increment();
+	}
+
+	/**
+	 * Count an event handed to Sentry
+	 */
+	public void eventSent() {
+		sent.increment();
+	}
+
+	/**
+	 * Count an event that could not be built or sent
+	 */
+	public void eventFailed() {
+		failed.increment();
+	}
+
+	/**
+	 * Get the number of events that reached the filters
+	 * @return The number of events
+	 */
+	public long getSeen() {
+		return seen.sum();
+	}
+
+	/**
+	 * Get the number of events dropped by the filters
+	 * @return The number of events
+	 */
+	public long getFiltered() {
+		return filtered.sum();
+	}
+
+	/**
+	 * Get the number of filtered events per filter
+	 * @return Map from the path of the filter to the number of events it dropped
+	 */
+	public synchronized SortedMap<String, Long> getFilteredByRule() {
+		return getByRule(retiredFilteredByRule, RuleTable.Section.EVENT_FILTERS);
+	}
+
+	/**
+	 * Get the number of events each events.rules entry has been applied to
+	 * @return Map from the path of the rule to the number of events it matched
+	 */
+	public synchronized SortedMap<String, Long> getMatchedByRule() {
+		return getByRule(retiredMatchedByRule, RuleTable.Section.EVENT_RULES);
+	}
+
+	/**
+	 * Combine the counts of replaced RuleSets with the counts of the active one
+	 * @param retired The counts of replaced RuleSets
+	 * @param section The section to get the counts of
+	 * @return Map from the path of the filter or rule to its count
+	 */
+	private SortedMap<String, Long> getByRule(Map<String, Long> retired, RuleTable.Section section) {
+		SortedMap<String, Long> result = new TreeMap<>(retired);
+		RuleSet ruleSet = ErrorSink.getRuleSet();
+		if(ruleSet != null) {
+			ruleSet.getCounters().addTo(section, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get the number of events dropped by the rate limiter
+	 * @return The number of events
+	 */
+	public long getRateLimited() {
+		return rateLimited.sum();
+	}
+
+	/**
+	 * Get the number of events handed to Sentry
+	 * @return The number of events
+	 */
+	public long getSent() {
+		return sent.sum();
+	}
+
+	/**
+	 * Get the number of events that could not be built or sent
+	 * @return The number of events
+	 */
+	public long getFailed() {
+		return failed.sum();
+	}
+
+	/**
+	 * Time spent running the filters on the logging thread
+	 * @return The histogram
+	 */
+	public LatencyHistogram getFilterLatency() {
+		return filterLatency;
+	}
+
+	/**
+	 * Time spent running the EventEditors for an event
+	 * @return The histogram
+	 */
+	public LatencyHistogram getEditorLatency() {
+		return editorLatency;
+	}
+
+	/**
+	 * Time spent handing a built event to Sentry
+	 * @return The histogram
+	 */
+	public LatencyHistogram getSendLatency() {
+		return sendLatency;
+	}
+
+}
@@ -0,0 +1,64 @@
+package me.wiefferink.errorsink.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Text overview of the statistics and EventEditor timings, for commands and debug output
+ */
+public class StatisticsReport {
+
+	/**
+	 * Create the report lines
+	 * @param appender The appender to report the editors and queues of, null to only report the statistics
+	 * @return The lines of the report
+	 */
+	public static List<String> create(ErrorSinkSentryAppender appender) {
+		Statistics statistics = ErrorSink.getStatistics();
+		List<String> lines = new ArrayList<>();
+		lines.add("Events: seen=" + statistics.getSeen()
+				+ " filtered=" + statistics.getFiltered()
+				+ " rateLimited=" + statistics.getRateLimited()
+				+ " sent=" + statistics.getSent()
+				+ " failed=" + statistics.getFailed());
+		for(Map.Entry<String, Long> filtered : statistics.getFilteredByRule().entrySet()) {
+			lines.add("  " + filtered.getKey() + ": " + filtered.getValue());
+		}
+		SortedMap<String, Long> matchedByRule = statistics.getMatchedByRule();
+		if(!matchedByRule.isEmpty()) {
+			lines.add("Rules applied:");
+			for(Map.Entry<String, Long> matched : matchedByRule.entrySet()) {
+				lines.add("  " + matched.getKey() + ": " + matched.getValue());
+			}
+		}
+		lines.add("Filters: " + statistics.getFilterLatency());
+		RuleSet ruleSet = ErrorSink.getRuleSet();
+		if(ruleSet.getFilterChain().getCache() != null) {
+			lines.add("  cache: " + ruleSet.getFilterChain().getCache());
+		}
+		if(ruleSet.getRuleCache() != null) {
+			lines.add("Rule cache: " + ruleSet.getRuleCache());
+		}
+		lines.add("Editors: " + statistics.getEditorLatency());
+		lines.add("Send: " + statistics.getSendLatency());
+
+		if(appender != null) {
+			if(appender.getPipeline() != null) {
+				lines.add("Queue: depth=" + appender.getPipeline().getQueueDepth() + " dropped=" + appender.getPipeline().getDropped());
+			}
+			for(EditorMonitor monitor : appender.getEditorMonitors()) {
+				lines.add(monitor.getName()
+						+ (monitor.isDisabled() ? " (disabled)" : "")
+						+ ": failures=" + monitor.getFailures()
+						+ " skipped=" + monitor.getSkipped()
+						+ " disabled=" + monitor.getDisabledCount());
+				lines.add("  capture: " + monitor.getCaptureLatency());
+				lines.add("  process: " + monitor.getProcessLatency());
+			}
+		}
+		return lines;
+	}
+
+}
@@ -0,0 +1,155 @@
+package me.wiefferink.errorsink.common;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A string from the config with {key} placeholders, split into literal and placeholder segments once
+ * Placeholders without a replacement are kept as they are, {random} is replaced by a random string if no replacement is given for it
+ */
+public class Template {
+
+	private static final String RANDOM = "random";
+	private static final int MAXIMUM_KEPT_BUILDER = 4096;
+
+	// Builder reused for rendering, templates are rendered on the logging and sending threads
+	private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(StringBuilder::new);
+
+	private final String source;
+	// Literal text, or null if the segment is a placeholder
+	private final String[] literals;
+	// Placeholder key, or null if the segment is literal text
+	private final String[] keys;
+	private final boolean hasRandom;
+
+	private Template(String source, String[] literals, String[] keys) {
+		this.source = source;
+		this.literals = literals;
+		this.keys = keys;
+		boolean random = false;
+		for(String key : keys) {
+			random |= RANDOM.equals(key);
+		}
+		this.hasRandom = random;
+	}
+
+	/**
+	 * Split a string into literal and placeholder segments
+	 * @param source The string to compile
+	 * @return The compiled template, or null if source is null
+	 */
+	public static Template compile(String source) {
+		if(source == null) {
+			return null;
+		}
+
+		List<String> literals = new ArrayList<>();
+		List<String> keys = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int position = 0;
+		while(position < source.length()) {
+			int open = source.indexOf('{', position);
+			int close = open < 0 ? -1 : source.indexOf('}', open + 1);
+			if(open < 0 || close < 0) {
+				literal.append(source, position, source.length());
+				break;
+			}
+
+			// Keys cannot contain an opening brace, '{{key}' is a literal '{' followed by a placeholder
+			int innerOpen = source.lastIndexOf('{', close);
+			if(innerOpen > open) {
+				literal.append(source, position, innerOpen);
+				open = innerOpen;
+			} else {
+				literal.append(source, position, open);
+			}
+
+			if(close == open + 1) {
+				literal.append("{}");
+			} else {
+				if(literal.length() > 0) {
+					literals.add(literal.toString());
+					keys.add(null);
+					literal.setLength(0);
+				}
+				literals.add(null);
+				keys.add(source.substring(open + 1, close));
+			}
+			position = close + 1;
+		}
+		if(literal.length() > 0) {
+			literals.add(literal.toString());
+			keys.add(null);
+		}
+		return new Template(source, literals.toArray(new String[literals.size()]), keys.toArray(new String[keys.size()]));
+	}
+
+	/**
+	 * Render the template
+	 * @param replacements The values for the placeholders
+	 * @param random       Random to generate {random} with, only used if the template contains it
+	 * @return The rendered string
+	 */
+	public String render(Map<String, String> replacements, Random random) {
+		if(isConstant()) {
+			return literals.length == 0 ? "" : literals[0];
+		}
+
+		String randomValue = null;
+		if(hasRandom && (replacements == null || !replacements.containsKey(RANDOM))) {
+			randomValue = new BigInteger(130, random).toString(32);
+		}
+
+		StringBuilder result = builders.get();
+		result.setLength(0);
+		for(int i = 0; i < keys.length; i++) {
+			String key = keys[i];
+			if(key == null) {
+				result.append(literals[i]);
+				continue;
+			}
+
+			if(replacements != null && replacements.containsKey(key)) {
+				String value = replacements.get(key);
+				if(value != null) {
+					result.append(value);
+				}
+			} else if(randomValue != null && RANDOM.equals(key)) {
+				result.append(randomValue);
+			} else {
+				result.append('{').append(key).append('}');
+			}
+		}
+
+		String rendered = result.toString();
+		if(result.capacity() > MAXIMUM_KEPT_BUILDER) {
+			builders.remove();
+		}
+		return rendered;
+	}
+
+	/**
+	 * Check if the template contains placeholders
+	 * @return true if the template renders to the same string every time, otherwise false
+	 */
+	public boolean isConstant() {
+		return keys.length == 0 || (keys.length == 1 && keys[0] == null);
+	}
+
+	/**
+	 * Get the string the template is compiled from
+	 * @return The source string
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+}
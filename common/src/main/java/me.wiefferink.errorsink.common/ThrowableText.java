@@ -0,0 +1,81 @@
+package me.wiefferink.errorsink.common;
+
+import me.wiefferink.errorsink.common.replay.ReplayedThrowable;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+/**
+ * Text of an exception, rendered lazily and at most once
+ * Filters, rules and breadcrumbs all match against the same exception, rendering a big stacktrace for each of them is expensive
+ * Nothing is shared between instances, hold on to the instance to reuse the text (EventContext does this per event)
+ */
+public class ThrowableText {
+
+	private final Throwable throwable;
+	private volatile String firstLine;
+	private volatile String full;
+
+	private ThrowableText(Throwable throwable) {
+		this.throwable = throwable;
+	}
+
+	/**
+	 * Create the text of an exception, nothing is rendered yet
+	 * @param throwable The exception to get the text for
+	 * @return The text of the exception, or null if throwable is null
+	 */
+	public static ThrowableText of(Throwable throwable) {
+		if(throwable == null) {
+			return null;
+		}
+		return new ThrowableText(throwable);
+	}
+
+	/**
+	 * Get the class name of an exception
+	 * Exceptions read back from a log file only know the class of the original exception by name
+	 * @param throwable The exception to get the class name of
+	 * @return The class name of the original exception
+	 */
+	public static String getClassName(Throwable throwable) {
+		if(throwable instanceof ReplayedThrowable) {
+			return ((ReplayedThrowable) throwable).getClassName();
+		}
+		return throwable.getClass().getName();
+	}
+
+	/**
+	 * Get the first line of the stacktrace (class and message of the exception)
+	 * Cheap compared to rendering the full stacktrace, and always the start of {@link #getFull()}
+	 * @return The first line of the stacktrace
+	 */
+	public String getFirstLine() {
+		String result = firstLine;
+		if(result == null) {
+			result = throwable.toString();
+			firstLine = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the full stacktrace, including causes and suppressed exceptions
+	 * @return The full stacktrace
+	 */
+	public String getFull() {
+		String result = full;
+		if(result == null) {
+			result = ExceptionUtils.getStackTrace(throwable);
+			full = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the exception this is the text of
+	 * @return The exception
+	 */
+	public Throwable getThrowable() {
+		return throwable;
+	}
+
+}
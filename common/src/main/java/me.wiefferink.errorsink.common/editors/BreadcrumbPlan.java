@@ -0,0 +1,170 @@
+package me.wiefferink.errorsink.common.editors;
+
+import io.sentry.event.Breadcrumb;
+import io.sentry.event.BreadcrumbBuilder;
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.Log;
+import me.wiefferink.errorsink.common.Template;
+import ninja.leaping.configurate.ConfigurationNode;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The changes a breadcrumbs.rules entry makes to a breadcrumb, compiled from the config once
+ */
+public class BreadcrumbPlan {
+
+	private final String path;
+	private final EventRuleMatcher matcher;
+
+	private final Template category;
+	private final Template message;
+	// Resolved when loading if there are no placeholders
+	private final Breadcrumb.Type type;
+	private final Template typeTemplate;
+	private final Breadcrumb.Level level;
+	private final Template levelTemplate;
+	private final Template[] dataKeys;
+	// Template, List<Template> or Map<String, Object> of those
+	private final Object[] dataValues;
+
+	private BreadcrumbPlan(String path, EventRuleMatcher matcher, ConfigurationNode rule) {
+		this.path = path;
+		this.matcher = matcher;
+
+		category = Template.compile(rule.getNode("category").getString());
+		message = Template.compile(rule.getNode("message").getString());
+
+		Template typeCompiled = Template.compile(rule.getNode("type").getString());
+		if(typeCompiled != null && typeCompiled.isConstant()) {
+			type = parseType(typeCompiled.getSource());
+			typeTemplate = null;
+		} else {
+			type = null;
+			typeTemplate = typeCompiled;
+		}
+
+		Template levelCompiled = Template.compile(rule.getNode("level").getString());
+		if(levelCompiled != null && levelCompiled.isConstant()) {
+			level = parseLevel(levelCompiled.getSource());
+			levelTemplate = null;
+		} else {
+			level = null;
+			levelTemplate = levelCompiled;
+		}
+
+		Map<Object, ? extends ConfigurationNode> data = rule.getNode("data").getChildrenMap();
+		dataKeys = new Template[data.size()];
+		dataValues = new Object[data.size()];
+		int dataIndex = 0;
+		for(Map.Entry<Object, ? extends ConfigurationNode> dataEntry : data.entrySet()) {
+			dataKeys[dataIndex] = Template.compile(String.valueOf(dataEntry.getKey()));
+			dataValues[dataIndex] = RulePlan.compileValue(dataEntry.getValue());
+			dataIndex++;
+		}
+	}
+
+	/**
+	 * Compile a breadcrumb rule from the config
+	 * @param rule    The rule section
+	 * @param matcher The matcher that decides if the rule applies to a breadcrumb
+	 * @return The compiled rule
+	 */
+	public static BreadcrumbPlan compile(ConfigurationNode rule, EventRuleMatcher matcher) {
+		StringBuilder path = new StringBuilder();
+		for(Object pathPart : rule.getPath()) {
+			if(path.length() > 0) {
+				path.append('.');
+			}
+			path.append(pathPart);
+		}
+		return new BreadcrumbPlan(path.toString(), matcher, rule);
+	}
+
+	/**
+	 * Parse a breadcrumb type, reporting it if it is not a valid type
+	 * @param typeString The type to parse
+	 * @return The type, or null if it is not valid
+	 */
+	private Breadcrumb.Type parseType(String typeString) {
+		try {
+			return Breadcrumb.Type.valueOf(typeString.toUpperCase());
+		} catch(IllegalArgumentException e) {
+			Log.error("Incorrect breadcrumb type \"" + typeString + "\" for rule", path);
+			return null;
+		}
+	}
+
+	/**
+	 * Parse a breadcrumb level, reporting it if it is not a valid level
+	 * @param levelString The level to parse
+	 * @return The level, or null if it is not valid
+	 */
+	private Breadcrumb.Level parseLevel(String levelString) {
+		try {
+			return Breadcrumb.Level.valueOf(levelString.toUpperCase());
+		} catch(IllegalArgumentException e) {
+			Log.warn("Incorrect breadcrumb level \"" + levelString + "\" for rule", path);
+			return null;
+		}
+	}
+
+	/**
+	 * Apply the rule to a breadcrumb
+	 * @param breadcrumb   The builder of the breadcrumb
+	 * @param data         The data of the breadcrumb, merged from all rules
+	 * @param replacements The groups captured by matching the rule
+	 * @param random       Random to use for {random}
+	 */
+	public void apply(BreadcrumbBuilder breadcrumb, Map<String, String> data, Map<String, String> replacements, Random random) {
+		if(category != null) {
+			breadcrumb.setCategory(category.render(replacements, random));
+		}
+
+		Breadcrumb.Type newType = type;
+		if(typeTemplate != null) {
+			newType = parseType(typeTemplate.render(replacements, random));
+		}
+		if(newType != null) {
+			breadcrumb.setType(newType);
+		}
+
+		if(message != null) {
+			breadcrumb.setMessage(message.render(replacements, random));
+		}
+
+		Breadcrumb.Level newLevel = level;
+		if(levelTemplate != null) {
+			newLevel = parseLevel(levelTemplate.render(replacements, random));
+		}
+		if(newLevel != null) {
+			breadcrumb.setLevel(newLevel);
+		}
+
+		// Sentry only supports string values, but we support lists and thing like that this way
+		for(int i = 0; i < dataKeys.length; i++) {
+			Object dataValue = RulePlan.renderValue(dataValues[i], replacements, random);
+			if(dataValue != null) {
+				data.put(dataKeys[i].render(replacements, random), dataValue.toString());
+			}
+		}
+	}
+
+	/**
+	 * Get the matcher that decides if the rule applies to a breadcrumb
+	 * @return The matcher
+	 */
+	public EventRuleMatcher getMatcher() {
+		return matcher;
+	}
+
+	/**
+	 * Get the config path of the rule
+	 * @return The path, separated by dots
+	 */
+	public String getPath() {
+		return path;
+	}
+
+}
@@ -0,0 +1,143 @@
+package me.wiefferink.errorsink.common.editors;
+
+import io.sentry.event.Breadcrumb;
+import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.EventContext;
+import me.wiefferink.errorsink.common.ThrowableText;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+
+/**
+ * The parts of a LogEvent needed to build a breadcrumb, much smaller than keeping the LogEvent itself
+ * Message parameters, context data and other details of the LogEvent are not retained
+ */
+public class BreadcrumbRecord {
+
+	private final long timestamp;
+	private final Level level;
+	private final String loggerName;
+	private final String threadName;
+	private final String message;
+	private final ThrowableText thrown;
+	private volatile Breadcrumb breadcrumb;
+
+	/**
+	 * Constructor
+	 * @param event The event to create the record for
+	 */
+	public BreadcrumbRecord(LogEvent event) {
+		this(
+				ErrorSink.getPlugin().getTimeStamp(event),
+				event.getLevel(),
+				event.getLoggerName(),
+				event.getThreadName(),
+				event.getMessage() == null ? null : event.getMessage().getFormattedMessage(),
+				event.getThrown()
+		);
+	}
+
+	/**
+	 * Constructor, reusing the already formatted message and exception text of the context
+	 * @param context The event to create the record for
+	 */
+	public BreadcrumbRecord(EventContext context) {
+		this.timestamp = ErrorSink.getPlugin().getTimeStamp(context.getEvent());
+		this.level = context.getLevel();
+		this.loggerName = intern(context.getLoggerName());
+		this.threadName = intern(context.getThreadName());
+		this.message = context.getFormattedMessage();
+		this.thrown = context.getThrowableText();
+	}
+
+	/**
+	 * Constructor
+	 * @param timestamp  The time of the event in milliseconds
+	 * @param level      The level of the event
+	 * @param loggerName The name of the logger
+	 * @param threadName The name of the thread
+	 * @param message    The formatted message
+	 * @param thrown     The exception of the event
+	 */
+	public BreadcrumbRecord(long timestamp, Level level, String loggerName, String threadName, String message, Throwable thrown) {
+		this.timestamp = timestamp;
+		this.level = level;
+		this.loggerName = intern(loggerName);
+		this.threadName = intern(threadName);
+		this.message = message;
+		this.thrown = ThrowableText.of(thrown);
+	}
+
+	/**
+	 * Intern a name, the same few loggers and threads log almost everything
+	 * @param name The name to intern
+	 * @return The interned name, or null if name is null
+	 */
+	private static String intern(String name) {
+		return name == null ? null : name.intern();
+	}
+
+	/**
+	 * Get the time of the event
+	 * @return The time in milliseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Get the level of the event
+	 * @return The level
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Get the name of the logger that logged the event
+	 * @return The logger name
+	 */
+	public String getLoggerName() {
+		return loggerName;
+	}
+
+	/**
+	 * Get the name of the thread that logged the event
+	 * @return The thread name
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * Get the formatted message of the event
+	 * @return The message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Get the exception of the event, rendered when first used
+	 * @return The exception text, or null if the event has no exception
+	 */
+	public ThrowableText getThrown() {
+		return thrown;
+	}
+
+	/**
+	 * Get the breadcrumb built from this record
+	 * @return The breadcrumb, or null if it has not been built yet
+	 */
+	public Breadcrumb getBreadcrumb() {
+		return breadcrumb;
+	}
+
+	/**
+	 * Set the breadcrumb built from this record
+	 * @param breadcrumb The breadcrumb
+	 */
+	public void setBreadcrumb(Breadcrumb breadcrumb) {
+		this.breadcrumb = breadcrumb;
+	}
+
+}
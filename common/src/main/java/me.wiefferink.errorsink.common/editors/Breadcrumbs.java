@@ -1,14 +1,15 @@
 package me.wiefferink.errorsink.common.editors;
 
-import com.google.common.collect.Lists;
 import io.sentry.event.Breadcrumb;
 import io.sentry.event.BreadcrumbBuilder;
 import io.sentry.event.EventBuilder;
 import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.EventContext;
 import me.wiefferink.errorsink.common.EventEditor;
-import me.wiefferink.errorsink.common.Log;
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.RingBuffer;
+import me.wiefferink.errorsink.common.RuleSet;
 import ninja.leaping.configurate.ConfigurationNode;
-import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.LogEvent;
@@ -16,69 +17,56 @@ import org.apache.logging.log4j.core.Logger;
 import org.apache.logging.log4j.core.appender.AbstractAppender;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public class Breadcrumbs extends EventEditor {
 
-	private final LinkedList<LogEvent> breadcrumbs = new LinkedList<>();
+	private final RingBuffer<BreadcrumbRecord> breadcrumbs;
 	private int maximumEntries = 50;
 	private Pattern tagPrefix = Pattern.compile("^\\[[a-zA-Z0-9-_]+\\] ");
 	private Logger[] loggers;
 	private Appender breadcrumbAppender;
-	private ConfigurationNode rules;
-	private ConfigurationNode filters;
-	private boolean hasImmutableMethod = false;
+	private ThreadPoolExecutor builder;
 
 	public Breadcrumbs(Logger... loggers) {
 		this.loggers = loggers;
 		ConfigurationNode root = ErrorSink.getPlugin().getPluginConfig();
-		rules = root.getNode("breadcrumbs", "rules");
-		filters = root.getNode("breadcrumbs", "filters");
 		maximumEntries = root.getNode("breadcrumbs", "maximumEntries").getInt(50);
-
-		// Test if LogEvent has toImmutable()
-		try {
-			LogEvent.class.getMethod("toImmutable");
-			hasImmutableMethod = true;
-		} catch(Exception ignored) {
+		breadcrumbs = new RingBuffer<>(maximumEntries);
+		if(root.getNode("breadcrumbs", "buildInBackground").getBoolean(true)) {
+			// Breadcrumbs that do not fit in the queue are built when an event needs them
+			builder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, maximumEntries)), runnable -> {
+				Thread thread = new Thread(runnable, "ErrorSink breadcrumb builder");
+				thread.setDaemon(true);
+				return thread;
+			}, new ThreadPoolExecutor.DiscardPolicy());
 		}
 
 		breadcrumbAppender = new AbstractAppender("Breadcrumb Builder", null, null, false) {
 			@Override
 			public void append(LogEvent event) {
-				String formattedMessage = null;
-				if(event.getMessage() != null) {
-					formattedMessage = event.getMessage().getFormattedMessage();
-				}
-				if(filters != null) {
-					for(Object filterKey : filters.getChildrenMap().keySet()) {
-						if(ErrorSink.getPlugin().match(
-								Lists.newArrayList("breadcrumbs", "filters", filterKey),
-								formattedMessage,
-								event.getLevel(),
-								event.getThrown(),
-								event.getThreadName(),
-								event.getLoggerName()) != null) {
-							return;
-						}
+				// Message is formatted once, for the filters and the record
+				EventContext context = new EventContext(event);
+				RuleSet ruleSet = context.getRuleSet();
+				for(EventRuleMatcher filter : ruleSet.getBreadcrumbFilters()) {
+					if(filter.matches(context) != null) {
+						return;
 					}
 				}
 
-				synchronized(breadcrumbs) {
-					if(hasImmutableMethod) {
-						event = event.toImmutable();
-					}
-
-					breadcrumbs.add(event);
-					if(breadcrumbs.size() > maximumEntries) {
-						breadcrumbs.removeFirst();
-					}
+				BreadcrumbRecord record = new BreadcrumbRecord(context);
+				breadcrumbs.add(record);
+				if(builder == null) {
+					getBreadcrumb(record, ruleSet);
+				} else {
+					builder.execute(() -> getBreadcrumb(record, ruleSet));
 				}
 			}
 		};
@@ -88,120 +76,128 @@ public class Breadcrumbs extends EventEditor {
 		}
 	}
 
+	/**
+	 * Get a copy of the current breadcrumbs
+	 * @return The breadcrumbs, oldest first
+	 */
+	private List<BreadcrumbRecord> getBreadcrumbs() {
+		return breadcrumbs.snapshot();
+	}
+
 	@Override
-	public void processEvent(EventBuilder eventBuilder, LogEvent event) {
-		List<Breadcrumb> result = new ArrayList<>();
-		List<LogEvent> breadcrumbsCopy = new ArrayList<>(breadcrumbs);
-		for(LogEvent breadcrumbEvent : breadcrumbsCopy) {
-			BreadcrumbBuilder breadcrumb = new BreadcrumbBuilder();
-
-			String message = null;
-			if(breadcrumbEvent.getMessage() != null) {
-				message = breadcrumbEvent.getMessage().getFormattedMessage();
-			}
+	public void captureEvent(EventContext context) {
+		// Breadcrumbs leading up to the event, later breadcrumbs might already be added when processing happens
+		context.setCapture(this, getBreadcrumbs());
+	}
 
-			// Default to empty message to prevent Raven error
-			if(message == null) {
-				breadcrumb.setMessage("");
-			} else {
-				breadcrumb.setMessage(message);
-			}
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processEvent(EventBuilder eventBuilder, EventContext context) {
+		List<BreadcrumbRecord> breadcrumbsCopy = (List<BreadcrumbRecord>) context.getCapture(this);
+		if(breadcrumbsCopy == null) {
+			breadcrumbsCopy = getBreadcrumbs();
+		}
+		addBreadcrumbs(eventBuilder, breadcrumbsCopy, context.getRuleSet());
+	}
 
-			// Set defaults
-			breadcrumb.setTimestamp(new Date(ErrorSink.getPlugin().getTimeStamp(breadcrumbEvent)));
-			breadcrumb.setLevel(getBreadcrumbLevel(breadcrumbEvent));
-			breadcrumb.setCategory(" "); // Empty to indicate regular logging
-			breadcrumb.setType(Breadcrumb.Type.DEFAULT);
-			Map<String, String> data = new HashMap<>();
-			if(breadcrumbEvent.getThrown() != null) {
-				data.put("exception", ExceptionUtils.getStackTrace(breadcrumbEvent.getThrown()));
-			}
+	@Override
+	public void processEvent(EventBuilder eventBuilder, LogEvent event) {
+		addBreadcrumbs(eventBuilder, getBreadcrumbs(), ErrorSink.getRuleSet());
+	}
 
-			if(rules != null) {
-				for(Map.Entry<Object, ? extends ConfigurationNode> entry: rules.getChildrenMap().entrySet()) {
-
-					String ruleKey = (String) entry.getKey();
-					ConfigurationNode rule = entry.getValue();
-
-					Map<String, String> replacements = ErrorSink.getPlugin().match(
-							Arrays.asList(rule.getPath()),
-							message,
-							breadcrumbEvent.getLevel(),
-							breadcrumbEvent.getThrown(),
-							breadcrumbEvent.getThreadName(),
-							breadcrumbEvent.getLoggerName()
-					);
-					if(replacements == null) {
-						continue;
-					}
+	/**
+	 * Add breadcrumbs to an event
+	 * @param eventBuilder    The builder to add the breadcrumbs to
+	 * @param breadcrumbsCopy The breadcrumbs to add
+	 * @param ruleSet         The rules to build breadcrumbs with that are not built yet
+	 */
+	private void addBreadcrumbs(EventBuilder eventBuilder, List<BreadcrumbRecord> breadcrumbsCopy, RuleSet ruleSet) {
+		List<Breadcrumb> result = new ArrayList<>(breadcrumbsCopy.size());
+		for(BreadcrumbRecord breadcrumbEvent : breadcrumbsCopy) {
+			result.add(getBreadcrumb(breadcrumbEvent, ruleSet));
+		}
+		eventBuilder.withBreadcrumbs(result);
+	}
 
-					// Category
-					String newCategory = applyReplacements(rule.getString("category"), replacements);
-					if(newCategory != null) {
-						breadcrumb.setCategory(newCategory);
-					}
+	/**
+	 * Get the breadcrumb of a record, building it if that did not happen yet
+	 * @param breadcrumbEvent The record to get the breadcrumb for
+	 * @param ruleSet         The rules to build the breadcrumb with
+	 * @return The breadcrumb
+	 */
+	private Breadcrumb getBreadcrumb(BreadcrumbRecord breadcrumbEvent, RuleSet ruleSet) {
+		Breadcrumb result = breadcrumbEvent.getBreadcrumb();
+		if(result == null) {
+			// Building twice when racing the builder thread gives the same result
+			result = buildBreadcrumb(breadcrumbEvent, ruleSet);
+			breadcrumbEvent.setBreadcrumb(result);
+		}
+		return result;
+	}
 
-					// Type
-					String typeString = applyReplacements(rule.getString("type"), replacements);
-					if(typeString != null) {
-						try {
-							breadcrumb.setType(Breadcrumb.Type.valueOf(typeString.toUpperCase()));
-						} catch(IllegalArgumentException e) {
-							Log.error("Incorrect breadcrumb type \"" + typeString + "\" for rule", String.join(".", (String[]) rules.getPath()) + "." + ruleKey);
-						}
-					}
+	/**
+	 * Build a breadcrumb by applying the breadcrumb rules to a record
+	 * @param breadcrumbEvent The record to build a breadcrumb for
+	 * @param ruleSet         The rules to apply
+	 * @return The breadcrumb
+	 */
+	private Breadcrumb buildBreadcrumb(BreadcrumbRecord breadcrumbEvent, RuleSet ruleSet) {
+		BreadcrumbBuilder breadcrumb = new BreadcrumbBuilder();
 
-					// Message
-					String newMessage = applyReplacements(rule.getString("message"), replacements);
-					if(newMessage != null) {
-						breadcrumb.setMessage(newMessage);
-					}
+		String message = breadcrumbEvent.getMessage();
 
-					// Level
-					String levelString = applyReplacements(rule.getString("level"), replacements);
-					if(levelString != null) {
-						try {
-							breadcrumb.setLevel(Breadcrumb.Level.valueOf(levelString.toUpperCase()));
-						} catch(IllegalArgumentException e) {
-							Log.warn("Incorrect breadcrumb level \"" + levelString + "\" for rule", String.join(".", (String[]) rules.getPath()) + "." + ruleKey);
-						}
-					}
+		// Default to empty message to prevent Raven error
+		if(message == null) {
+			breadcrumb.setMessage("");
+		} else {
+			breadcrumb.setMessage(message);
+		}
 
-					// Add data
-					ConfigurationNode dataSection = rule.getNode("data");
-						for(Object dataKey : dataSection.getChildrenMap().keySet()) {
-							// Sentry only supports string values, but we support lists and thing like that this way
-							Object dataValue = getValue(dataSection, new Object[] { dataKey }, replacements);
-							if (dataValue != null) {
-								data.put(applyReplacements((String) dataKey, replacements), dataValue.toString());
-							}
-						}
-				}
+		// Set defaults
+		breadcrumb.setTimestamp(new Date(breadcrumbEvent.getTimestamp()));
+		breadcrumb.setLevel(getBreadcrumbLevel(breadcrumbEvent.getLevel()));
+		breadcrumb.setCategory(" "); // Empty to indicate regular logging
+		breadcrumb.setType(Breadcrumb.Type.DEFAULT);
+		Map<String, String> data = new HashMap<>();
+		if(breadcrumbEvent.getThrown() != null) {
+			data.put("exception", breadcrumbEvent.getThrown().getFull());
+		}
 
+		for(BreadcrumbPlan plan : ruleSet.getBreadcrumbPlans()) {
+			Map<String, String> replacements = plan.getMatcher().matches(
+					message,
+					breadcrumbEvent.getLevel(),
+					breadcrumbEvent.getThrown(),
+					breadcrumbEvent.getThreadName(),
+					breadcrumbEvent.getLoggerName()
+			);
+			if(replacements != null) {
+				plan.apply(breadcrumb, data, replacements, getRandom());
 			}
-			// Set data (merged data from all rules)
-			if(!data.isEmpty()) {
-				breadcrumb.setData(data);
-			}
+		}
 
-			result.add(breadcrumb.build());
+		// Set data (merged data from all rules)
+		if(!data.isEmpty()) {
+			breadcrumb.setData(data);
 		}
-		eventBuilder.withBreadcrumbs(result);
+
+		return breadcrumb.build();
 	}
 
+
 	/**
-	 * Get a breadcrumb level based on a LogRecord
-	 * @param logEvent The record to calculate a level for
-	 * @return The level of the record
+	 * Get a breadcrumb level based on a log level
+	 * @param level The level to calculate a breadcrumb level for
+	 * @return The breadcrumb level
 	 */
-	private Breadcrumb.Level getBreadcrumbLevel(LogEvent logEvent) {
-		if (logEvent.getLevel().equals(Level.WARN)) {
+	private Breadcrumb.Level getBreadcrumbLevel(Level level) {
+		if (level.equals(Level.WARN)) {
 			return Breadcrumb.Level.WARNING;
-		} else if (logEvent.getLevel().equals(Level.ERROR)) {
+		} else if (level.equals(Level.ERROR)) {
 			return Breadcrumb.Level.ERROR;
-		} else if (logEvent.getLevel().equals(Level.FATAL)) {
+		} else if (level.equals(Level.FATAL)) {
 			return Breadcrumb.Level.CRITICAL;
-		} else if (logEvent.getLevel().equals(Level.DEBUG)) {
+		} else if (level.equals(Level.DEBUG)) {
 			return Breadcrumb.Level.DEBUG;
 		} else {
 			return Breadcrumb.Level.INFO;
@@ -213,6 +209,9 @@ public class Breadcrumbs extends EventEditor {
 		for (Logger logger: this.loggers) {
 			logger.removeAppender(breadcrumbAppender);
 		}
+		if(builder != null) {
+			builder.shutdownNow();
+		}
 	}
 
 }
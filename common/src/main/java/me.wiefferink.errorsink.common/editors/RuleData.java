@@ -1,14 +1,10 @@
 package me.wiefferink.errorsink.common.editors;
 
-import com.google.common.collect.Lists;
-import com.google.common.reflect.TypeToken;
-import io.sentry.event.Event;
 import io.sentry.event.EventBuilder;
 import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.EventContext;
 import me.wiefferink.errorsink.common.EventEditor;
-import me.wiefferink.errorsink.common.Log;
-import ninja.leaping.configurate.ConfigurationNode;
-import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import me.wiefferink.errorsink.common.RuleSet;
 import org.apache.logging.log4j.core.LogEvent;
 
 import java.util.List;
@@ -16,117 +12,50 @@ import java.util.Map;
 
 public class RuleData extends EventEditor {
 
-	private ConfigurationNode rules;
-
-	public RuleData(ConfigurationNode root) {
-		rules = root.getNode("events", "rules");
+	/**
+	 * Get the fingerprint the rules set for an event, without applying the other rule data
+	 * @param context The event to get the fingerprint for
+	 * @return The fingerprint of the last matching rule that sets one, or null if no rule sets a fingerprint
+	 */
+	public List<String> getFingerprint(EventContext context) {
+		RuleSet ruleSet = context.getRuleSet();
+		RulePlan[] plans = ruleSet.getRulePlans();
+		// Runs on the logging thread: only match the rules with a fingerprint, processEvent matches all rules and fills the cache
+		Map<String, String>[] matches = ruleSet.getCachedRules(context);
+		List<String> result = null;
+		for(int i = 0; i < plans.length; i++) {
+			if(!plans[i].hasFingerprint()) {
+				continue;
+			}
+			Map<String, String> replacements = matches == null ? plans[i].getMatcher().matches(context) : matches[i];
+			if(replacements != null) {
+				result = plans[i].renderFingerprint(replacements, getRandom());
+			}
+		}
+		return result;
 	}
 
 	@Override
 	public void processEvent(EventBuilder eventBuilder, LogEvent event) {
+		processEvent(eventBuilder, new EventContext(event));
+	}
+
+	@Override
+	public void processEvent(EventBuilder eventBuilder, EventContext context) {
 		// Plugin information
 		eventBuilder.withServerName(ErrorSink.getPlugin().getServerName());
 		eventBuilder.withRelease(ErrorSink.getPlugin().getRelease());
 
-		// Config rules
-		if(rules != null) {
-			String formattedMessage = null;
-			if (event.getMessage() != null) {
-				formattedMessage = event.getMessage().getFormattedMessage();
-			}
-			for(Map.Entry<Object, ? extends ConfigurationNode> entry : rules.getChildrenMap().entrySet()) {
-				String ruleKey = (String) entry.getKey();
-				ConfigurationNode rule = entry.getValue();
-
-				// Match event
-				Map<String, String> replacements = ErrorSink.getPlugin().match(
-						Lists.newArrayList("events", "rules", ruleKey),
-						formattedMessage,
-						event.getLevel(),
-						event.getThrown(),
-						event.getThreadName(),
-						event.getLoggerName()
-				);
-				if(replacements == null) {
-					continue;
-				}
-
-				// Add tags
-				ConfigurationNode tagsSection = rule.getNode("tags");
-				if(tagsSection != null) {
-					for(Map.Entry<Object, ? extends ConfigurationNode> tagEntry: tagsSection.getChildrenMap().entrySet()) {
-						String tagValue = applyReplacements(tagEntry.getValue().getString(), replacements);
-						if(tagValue != null && !tagValue.isEmpty()) {
-							eventBuilder.withTag(applyReplacements((String) tagEntry.getKey(), replacements), tagValue);
-						}
-					}
-				}
-
-				// Add data
-				ConfigurationNode dataSection = rule.getNode("data");
-				if(dataSection != null) {
-					for(Object datakey : dataSection.getChildrenMap().keySet()) {
-						Object dataValue = getValue(dataSection, new String[] { (String) datakey }, replacements);
-						if(dataValue != null) {
-							eventBuilder.withExtra(applyReplacements((String) datakey, replacements), dataValue);
-						}
-					}
-				}
-
-				// Fingerprint
-				List<String> fingerPrint = null;
-				try {
-					fingerPrint = applyReplacements(rule.getNode("fingerprint").getList(TypeToken.of(String.class)), replacements);
-				} catch (ObjectMappingException e) {
-					throw new RuntimeException(e);
-				}
-				if(fingerPrint != null) {
-					eventBuilder.withFingerprint(fingerPrint);
-				}
-
-				// Level
-				String levelString = applyReplacements(rule.getNode("level").getString(), replacements);
-				if (levelString != null) {
-					try {
-						eventBuilder.withLevel(Event.Level.valueOf(levelString.toUpperCase()));
-					} catch (IllegalArgumentException e) {
-						Log.warn("Incorrect level \"" + levelString + "\" for rule", String.join(".", (String[]) rules.getPath()) + "." + ruleKey);
-					}
-				}
-
-				// Environment
-				String environment = applyReplacements(rule.getNode("environment").getString(), replacements);
-				if (environment != null) {
-					eventBuilder.withEnvironment(environment);
-				}
-
-				// Culprit
-				String culprit = applyReplacements(rule.getNode("culprit").getString(), replacements);
-				if (culprit != null) {
-					eventBuilder.withCulprit(culprit);
-				}
-
-				// Logger
-				String logger = applyReplacements(rule.getNode("logger").getString(), replacements);
-				if (logger != null) {
-					eventBuilder.withLogger(logger);
-				}
-
-				// Release
-				String release = applyReplacements(rule.getNode("release").getString(), replacements);
-				if (release != null) {
-					eventBuilder.withRelease(release);
-				}
-
-				// Platform
-				String platform = applyReplacements(rule.getNode("platform").getString(), replacements);
-				if (platform != null) {
-					eventBuilder.withPlatform(platform);
-				}
-
+		// Config rules, the same ones the filter and rate limiter used for this event
+		RuleSet ruleSet = context.getRuleSet();
+		RulePlan[] plans = ruleSet.getRulePlans();
+		Map<String, String>[] matches = ruleSet.matchRules(context);
+		for(int i = 0; i < plans.length; i++) {
+			if(matches[i] != null) {
+				plans[i].apply(eventBuilder, matches[i], getRandom());
+				ruleSet.ruleApplied(i);
 			}
 		}
-
 	}
 
 }
@@ -0,0 +1,284 @@
+package me.wiefferink.errorsink.common.editors;
+
+import com.google.common.reflect.TypeToken;
+import io.sentry.event.Event;
+import io.sentry.event.EventBuilder;
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.Log;
+import me.wiefferink.errorsink.common.Template;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The changes an events.rules entry makes to an event, compiled from the config once
+ * Applying a plan does not touch the config anymore
+ */
+public class RulePlan {
+
+	private final String path;
+	private final EventRuleMatcher matcher;
+
+	private final Template[] tagKeys;
+	private final Template[] tagValues;
+	private final Template[] dataKeys;
+	// Template, List<Template> or Map<String, Object> of those
+	private final Object[] dataValues;
+	private final List<Template> fingerprint;
+	// Resolved when loading if the level has no placeholders
+	private final Event.Level level;
+	private final Template levelTemplate;
+	private final Template environment;
+	private final Template culprit;
+	private final Template logger;
+	private final Template release;
+	private final Template platform;
+
+	private RulePlan(String path, EventRuleMatcher matcher, ConfigurationNode rule) {
+		this.path = path;
+		this.matcher = matcher;
+
+		// Tags
+		Map<Object, ? extends ConfigurationNode> tags = rule.getNode("tags").getChildrenMap();
+		tagKeys = new Template[tags.size()];
+		tagValues = new Template[tags.size()];
+		int tagIndex = 0;
+		for(Map.Entry<Object, ? extends ConfigurationNode> tagEntry : tags.entrySet()) {
+			tagKeys[tagIndex] = Template.compile(String.valueOf(tagEntry.getKey()));
+			tagValues[tagIndex] = Template.compile(tagEntry.getValue().getString());
+			tagIndex++;
+		}
+
+		// Data
+		Map<Object, ? extends ConfigurationNode> data = rule.getNode("data").getChildrenMap();
+		dataKeys = new Template[data.size()];
+		dataValues = new Object[data.size()];
+		int dataIndex = 0;
+		for(Map.Entry<Object, ? extends ConfigurationNode> dataEntry : data.entrySet()) {
+			dataKeys[dataIndex] = Template.compile(String.valueOf(dataEntry.getKey()));
+			dataValues[dataIndex] = compileValue(dataEntry.getValue());
+			dataIndex++;
+		}
+
+		// Fingerprint, a single string is read as a list with one entry
+		List<String> fingerprintStrings;
+		try {
+			fingerprintStrings = rule.getNode("fingerprint").getList(TypeToken.of(String.class));
+		} catch(ObjectMappingException e) {
+			throw new RuntimeException(e);
+		}
+		if(fingerprintStrings == null || fingerprintStrings.isEmpty()) {
+			fingerprint = null;
+		} else {
+			List<Template> fingerprintTemplates = new ArrayList<>(fingerprintStrings.size());
+			for(String fingerprintString : fingerprintStrings) {
+				fingerprintTemplates.add(Template.compile(fingerprintString));
+			}
+			fingerprint = Collections.unmodifiableList(fingerprintTemplates);
+		}
+
+		// Level
+		Template levelCompiled = Template.compile(rule.getNode("level").getString());
+		if(levelCompiled != null && levelCompiled.isConstant()) {
+			level = parseLevel(levelCompiled.getSource());
+			levelTemplate = null;
+		} else {
+			level = null;
+			levelTemplate = levelCompiled;
+		}
+
+		environment = Template.compile(rule.getNode("environment").getString());
+		culprit = Template.compile(rule.getNode("culprit").getString());
+		logger = Template.compile(rule.getNode("logger").getString());
+		release = Template.compile(rule.getNode("release").getString());
+		platform = Template.compile(rule.getNode("platform").getString());
+	}
+
+	/**
+	 * Compile a rule from the config
+	 * @param rule    The rule section
+	 * @param matcher The matcher that decides if the rule applies to an event
+	 * @return The compiled rule
+	 */
+	public static RulePlan compile(ConfigurationNode rule, EventRuleMatcher matcher) {
+		StringBuilder path = new StringBuilder();
+		for(Object pathPart : rule.getPath()) {
+			if(path.length() > 0) {
+				path.append('.');
+			}
+			path.append(pathPart);
+		}
+		return new RulePlan(path.toString(), matcher, rule);
+	}
+
+	/**
+	 * Compile a data value
+	 * @param node The node to compile
+	 * @return Template, List of Template, Map with compiled values, or null if the node has no value
+	 */
+	static Object compileValue(ConfigurationNode node) {
+		if(node.hasListChildren()) {
+			List<Template> result = new ArrayList<>();
+			for(ConfigurationNode child : node.getChildrenList()) {
+				Template childTemplate = Template.compile(child.getString());
+				if(childTemplate != null) {
+					result.add(childTemplate);
+				}
+			}
+			return Collections.unmodifiableList(result);
+		} else if(node.hasMapChildren()) {
+			Map<String, Object> result = new LinkedHashMap<>();
+			for(Map.Entry<Object, ? extends ConfigurationNode> child : node.getChildrenMap().entrySet()) {
+				Object childValue = compileValue(child.getValue());
+				if(childValue != null) {
+					result.put(String.valueOf(child.getKey()), childValue);
+				}
+			}
+			return result.isEmpty() ? null : Collections.unmodifiableMap(result);
+		} else {
+			return Template.compile(node.getString());
+		}
+	}
+
+	/**
+	 * Render a compiled data value
+	 * @param value        The value from {@link #compileValue(ConfigurationNode)}
+	 * @param replacements The replacements to apply
+	 * @param random       Random to use for {random}
+	 * @return String, List of String or Map with rendered values, null if value is null
+	 */
+	@SuppressWarnings("unchecked")
+	static Object renderValue(Object value, Map<String, String> replacements, Random random) {
+		if(value instanceof Template) {
+			return ((Template) value).render(replacements, random);
+		} else if(value instanceof List) {
+			List<Template> templates = (List<Template>) value;
+			List<String> result = new ArrayList<>(templates.size());
+			for(Template template : templates) {
+				result.add(template.render(replacements, random));
+			}
+			return result;
+		} else if(value instanceof Map) {
+			Map<String, Object> templates = (Map<String, Object>) value;
+			Map<String, Object> result = new LinkedHashMap<>();
+			for(Map.Entry<String, Object> entry : templates.entrySet()) {
+				result.put(entry.getKey(), renderValue(entry.getValue(), replacements, random));
+			}
+			return result;
+		}
+		return null;
+	}
+
+	/**
+	 * Parse a level, reporting it if it is not a valid level
+	 * @param levelString The level to parse
+	 * @return The level, or null if it is not valid
+	 */
+	private Event.Level parseLevel(String levelString) {
+		try {
+			return Event.Level.valueOf(levelString.toUpperCase());
+		} catch(IllegalArgumentException e) {
+			Log.warn("Incorrect level \"" + levelString + "\" for rule", path);
+			return null;
+		}
+	}
+
+	/**
+	 * Apply the rule to an event
+	 * @param eventBuilder The builder of the event
+	 * @param replacements The groups captured by matching the rule
+	 * @param random       Random to use for {random}
+	 */
+	public void apply(EventBuilder eventBuilder, Map<String, String> replacements, Random random) {
+		for(int i = 0; i < tagKeys.length; i++) {
+			String tagValue = tagValues[i] == null ? null : tagValues[i].render(replacements, random);
+			if(tagValue != null && !tagValue.isEmpty()) {
+				eventBuilder.withTag(tagKeys[i].render(replacements, random), tagValue);
+			}
+		}
+
+		for(int i = 0; i < dataKeys.length; i++) {
+			Object dataValue = renderValue(dataValues[i], replacements, random);
+			if(dataValue != null) {
+				eventBuilder.withExtra(dataKeys[i].render(replacements, random), dataValue);
+			}
+		}
+
+		if(fingerprint != null) {
+			eventBuilder.withFingerprint(renderFingerprint(replacements, random));
+		}
+
+		if(level != null) {
+			eventBuilder.withLevel(level);
+		} else if(levelTemplate != null) {
+			Event.Level renderedLevel = parseLevel(levelTemplate.render(replacements, random));
+			if(renderedLevel != null) {
+				eventBuilder.withLevel(renderedLevel);
+			}
+		}
+
+		if(environment != null) {
+			eventBuilder.withEnvironment(environment.render(replacements, random));
+		}
+		if(culprit != null) {
+			eventBuilder.withCulprit(culprit.render(replacements, random));
+		}
+		if(logger != null) {
+			eventBuilder.withLogger(logger.render(replacements, random));
+		}
+		if(release != null) {
+			eventBuilder.withRelease(release.render(replacements, random));
+		}
+		if(platform != null) {
+			eventBuilder.withPlatform(platform.render(replacements, random));
+		}
+	}
+
+	/**
+	 * Render the fingerprint of the rule
+	 * @param replacements The groups captured by matching the rule
+	 * @param random       Random to use for {random}
+	 * @return The fingerprint, or null if the rule does not set one
+	 */
+	public List<String> renderFingerprint(Map<String, String> replacements, Random random) {
+		if(fingerprint == null) {
+			return null;
+		}
+		List<String> result = new ArrayList<>(fingerprint.size());
+		for(Template template : fingerprint) {
+			result.add(template.render(replacements, random));
+		}
+		return result;
+	}
+
+	/**
+	 * Check if the rule sets a fingerprint
+	 * @return true if the rule sets a fingerprint, otherwise false
+	 */
+	public boolean hasFingerprint() {
+		return fingerprint != null;
+	}
+
+	/**
+	 * Get the matcher that decides if the rule applies to an event
+	 * @return The matcher
+	 */
+	public EventRuleMatcher getMatcher() {
+		return matcher;
+	}
+
+	/**
+	 * Get the config path of the rule
+	 * @return The path, separated by dots
+	 */
+	public String getPath() {
+		return path;
+	}
+
+}
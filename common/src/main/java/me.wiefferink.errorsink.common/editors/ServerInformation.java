@@ -3,22 +3,22 @@ package me.wiefferink.errorsink.common.editors;
 import io.sentry.event.EventBuilder;
 import me.wiefferink.errorsink.common.ErrorSink;
 import me.wiefferink.errorsink.common.EventEditor;
+import me.wiefferink.errorsink.common.ServerSnapshot;
 import org.apache.logging.log4j.core.LogEvent;
 
-public class ServerInformation extends EventEditor {
-
-	private String serverVersion;
+import java.util.Map;
 
-	public ServerInformation() {
-		serverVersion = ErrorSink.getPlugin().getServerVersion();
-	}
+public class ServerInformation extends EventEditor {
 
 	@Override
 	public void processEvent(EventBuilder builder, LogEvent event) {
 		// Server information
-		builder.withTag("API", serverVersion);
-		builder.withExtra("Online players", ErrorSink.getPlugin().getOnlinePlayers());
-		ErrorSink.getPlugin().addExtraData(builder);
+		ServerSnapshot snapshot = ErrorSink.getServerSnapshot();
+		builder.withTag("API", snapshot.getServerVersion());
+		builder.withExtra("Online players", ErrorSink.getOnlinePlayers());
+		for(Map.Entry<String, String> extra : snapshot.getExtraData().entrySet()) {
+			builder.withExtra(extra.getKey(), extra.getValue());
+		}
 	}
 
 }
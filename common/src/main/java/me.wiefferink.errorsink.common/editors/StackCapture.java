@@ -0,0 +1,137 @@
+package me.wiefferink.errorsink.common.editors;
+
+import me.wiefferink.errorsink.common.Log;
+import org.apache.commons.lang.exception.ExceptionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Captures the stack of the current thread, without the ignored frames at the top
+ * Uses StackWalker on Java 9+, which only creates the frames that are kept and stops at the maximum depth
+ * Falls back to Thread.getStackTrace() on Java 8
+ */
+public class StackCapture {
+
+	// StackWalker.walk, bound to a StackWalker instance, null on Java 8
+	private static final MethodHandle walk;
+	// StackWalker.StackFrame methods, taking the frame as Object
+	private static final MethodHandle getClassName;
+	private static final MethodHandle getMethodName;
+	private static final MethodHandle toStackTraceElement;
+
+	static {
+		MethodHandle walkHandle = null;
+		MethodHandle classNameHandle = null;
+		MethodHandle methodNameHandle = null;
+		MethodHandle elementHandle = null;
+		try {
+			// StackWalker.walk is caller sensitive, a public lookup cannot find it
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+			Class<?> frameClass = Class.forName("java.lang.StackWalker$StackFrame");
+			Object walker = walkerClass.getMethod("getInstance").invoke(null);
+			walkHandle = lookup.findVirtual(walkerClass, "walk", MethodType.methodType(Object.class, Function.class))
+					.bindTo(walker);
+			classNameHandle = lookup.findVirtual(frameClass, "getClassName", MethodType.methodType(String.class))
+					.asType(MethodType.methodType(String.class, Object.class));
+			methodNameHandle = lookup.findVirtual(frameClass, "getMethodName", MethodType.methodType(String.class))
+					.asType(MethodType.methodType(String.class, Object.class));
+			elementHandle = lookup.findVirtual(frameClass, "toStackTraceElement", MethodType.methodType(StackTraceElement.class))
+					.asType(MethodType.methodType(StackTraceElement.class, Object.class));
+		} catch(ClassNotFoundException e) {
+			// Java 8, use Thread.getStackTrace()
+			walkHandle = null;
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			Log.debug("Could not use StackWalker, falling back to Thread.getStackTrace():", ExceptionUtils.getStackTrace(e));
+			walkHandle = null;
+		}
+		walk = walkHandle;
+		getClassName = classNameHandle;
+		getMethodName = methodNameHandle;
+		toStackTraceElement = elementHandle;
+	}
+
+	/**
+	 * Check if StackWalker is used
+	 * @return true if StackWalker is available, false if Thread.getStackTrace() is used
+	 */
+	public static boolean isUsingStackWalker() {
+		return walk != null;
+	}
+
+	/**
+	 * Capture the stack of the current thread
+	 * After the first frame that is not ignored all frames are kept
+	 * @param filter        The filter deciding which frames at the top of the stack to skip
+	 * @param maximumFrames The maximum number of frames to keep, 0 or less to keep all
+	 * @return The kept frames, innermost first
+	 */
+	public static StackTraceElement[] capture(StackFilter filter, int maximumFrames) {
+		int limit = maximumFrames <= 0 ? Integer.MAX_VALUE : maximumFrames;
+		if(walk != null) {
+			try {
+				return (StackTraceElement[]) walk.invoke((Function<Stream<?>, StackTraceElement[]>) stream -> walkFrames(stream, filter, limit));
+			} catch(Throwable e) {
+				Log.debug("Failed to walk the stack, using Thread.getStackTrace():", ExceptionUtils.getStackTrace(e));
+			}
+		}
+		return filter(Thread.currentThread().getStackTrace(), filter, limit);
+	}
+
+	/**
+	 * Collect the frames from a StackWalker stream
+	 * @param stream The stream of StackWalker.StackFrame
+	 * @param filter The filter deciding which frames at the top of the stack to skip
+	 * @param limit  The maximum number of frames to keep
+	 * @return The kept frames
+	 */
+	private static StackTraceElement[] walkFrames(Stream<?> stream, StackFilter filter, int limit) {
+		List<StackTraceElement> result = new ArrayList<>();
+		Iterator<?> frames = stream.iterator();
+		boolean foundCorrect = false;
+		try {
+			while(frames.hasNext() && result.size() < limit) {
+				Object frame = frames.next();
+				if(!foundCorrect) {
+					if(filter.isIgnored((String) getClassName.invokeExact(frame), (String) getMethodName.invokeExact(frame))) {
+						continue;
+					}
+					foundCorrect = true;
+				}
+				result.add((StackTraceElement) toStackTraceElement.invokeExact(frame));
+			}
+		} catch(RuntimeException | Error e) {
+			throw e;
+		} catch(Throwable e) {
+			throw new RuntimeException(e);
+		}
+		return result.toArray(new StackTraceElement[result.size()]);
+	}
+
+	/**
+	 * Filter a full stacktrace
+	 * @param elements The stack, innermost first
+	 * @param filter   The filter deciding which frames at the top of the stack to skip
+	 * @param limit    The maximum number of frames to keep
+	 * @return The kept frames
+	 */
+	public static StackTraceElement[] filter(StackTraceElement[] elements, StackFilter filter, int limit) {
+		// After finding the first not-ignored frame we don't want to ignore anything anymore
+		int start = 0;
+		while(start < elements.length && filter.isIgnored(elements[start].getClassName(), elements[start].getMethodName())) {
+			start++;
+		}
+		int end = (int) Math.min((long) start + limit, elements.length);
+		StackTraceElement[] result = new StackTraceElement[end - start];
+		System.arraycopy(elements, start, result, 0, result.length);
+		return result;
+	}
+
+}
@@ -0,0 +1,199 @@
+package me.wiefferink.errorsink.common.editors;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which frames at the top of a stack belong to logging and collecting the event
+ * Entries are 'package.Class.method' prefixes compiled into a trie of name segments, dots are matched literally
+ * Entries that use other regex features are matched as regex against 'className.methodName',
+ * only when the frame reaches the trie node of their literal start
+ */
+public class StackFilter {
+
+	private final Node root;
+
+	/**
+	 * Constructor
+	 * @param entries The entries to ignore, optionally starting with '^'
+	 */
+	public StackFilter(Collection<String> entries) {
+		root = new Node();
+		for(String entry : entries) {
+			if(entry == null || entry.isEmpty()) {
+				continue;
+			}
+			String prefix = entry.startsWith("^") ? entry.substring(1) : entry;
+			int literalLength = getLiteralLength(prefix);
+			if(literalLength == prefix.length()) {
+				addPrefix(prefix);
+			} else {
+				String literal = prefix.substring(0, literalLength);
+				Node node = getNode(literal.substring(0, Math.max(0, literal.lastIndexOf('.'))));
+				node.patterns = append(node.patterns, Pattern.compile("^" + prefix));
+			}
+		}
+	}
+
+	/**
+	 * Add a plain prefix to the trie
+	 * @param prefix The prefix to add
+	 */
+	private void addPrefix(String prefix) {
+		int lastDot = prefix.lastIndexOf('.');
+		if(lastDot == prefix.length() - 1) {
+			// Ends with a dot: everything below the last segment
+			getNode(prefix.substring(0, lastDot)).everything = true;
+		} else {
+			// Last segment can be partial: 'java.io.PrintStream' also matches 'java.io.PrintStreamWriter'
+			Node node = getNode(lastDot < 0 ? "" : prefix.substring(0, lastDot));
+			node.segmentPrefixes = append(node.segmentPrefixes, prefix.substring(lastDot + 1));
+		}
+	}
+
+	/**
+	 * Get or create the trie node for a dot separated path
+	 * @param path The path of the node, empty for the root
+	 * @return The node
+	 */
+	private Node getNode(String path) {
+		Node node = root;
+		if(path.isEmpty()) {
+			return node;
+		}
+		for(String segment : path.split("\\.", -1)) {
+			node = node.getOrCreateChild(segment);
+		}
+		return node;
+	}
+
+	/**
+	 * Get the length of the start of an entry that only consists of name characters
+	 * @param entry The entry to check
+	 * @return The length of the literal start
+	 */
+	private static int getLiteralLength(String entry) {
+		for(int i = 0; i < entry.length(); i++) {
+			char character = entry.charAt(i);
+			if(character == '$' || (character != '.' && !Character.isJavaIdentifierPart(character))) {
+				// Stop before a quantifier, it applies to the character before it
+				return i > 0 && isQuantifier(character) ? i - 1 : i;
+			}
+		}
+		return entry.length();
+	}
+
+	private static boolean isQuantifier(char character) {
+		return character == '*' || character == '+' || character == '?' || character == '{';
+	}
+
+	private static <T> T[] append(T[] array, T value) {
+		T[] result = Arrays.copyOf(array, array.length + 1);
+		result[array.length] = value;
+		return result;
+	}
+
+	/**
+	 * Check if a frame should be ignored
+	 * @param className  The class of the frame
+	 * @param methodName The method of the frame
+	 * @return true if the frame matches one of the entries, otherwise false
+	 */
+	public boolean isIgnored(String className, String methodName) {
+		Node node = root;
+		int start = 0;
+		// Segments of the class name, followed by the method name as last segment
+		while(node != null) {
+			boolean inClass = start <= className.length();
+			String source = inClass ? className : methodName;
+			int offset = inClass ? start : 0;
+			int end = inClass ? className.indexOf('.', offset) : methodName.length();
+			if(end < 0) {
+				end = className.length();
+			}
+
+			if(node.matches(className, methodName, source, offset, end - offset)) {
+				return true;
+			}
+			if(!inClass) {
+				return false;
+			}
+
+			node = node.getChild(source, offset, end - offset);
+			if(node != null && node.everything) {
+				return true;
+			}
+			start = end + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Node of the trie, one per name segment
+	 */
+	private static class Node {
+		private static final String[] NO_STRINGS = new String[0];
+		private static final Pattern[] NO_PATTERNS = new Pattern[0];
+		private static final Node[] NO_NODES = new Node[0];
+
+		// Segments are found by scanning, nodes have few children and this does not need substrings
+		private String[] childSegments = NO_STRINGS;
+		private Node[] children = NO_NODES;
+		// Everything below this node is ignored
+		private boolean everything;
+		// Prefixes of the next segment that are ignored
+		private String[] segmentPrefixes = NO_STRINGS;
+		// Regex entries that start with the path of this node
+		private Pattern[] patterns = NO_PATTERNS;
+
+		private Node getOrCreateChild(String segment) {
+			for(int i = 0; i < childSegments.length; i++) {
+				if(childSegments[i].equals(segment)) {
+					return children[i];
+				}
+			}
+			Node child = new Node();
+			childSegments = append(childSegments, segment);
+			children = append(children, child);
+			return child;
+		}
+
+		private Node getChild(String source, int offset, int length) {
+			for(int i = 0; i < childSegments.length; i++) {
+				String childSegment = childSegments[i];
+				if(childSegment.length() == length && source.regionMatches(offset, childSegment, 0, length)) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Check the entries that end at this node
+		 * @param className  The class of the frame
+		 * @param methodName The method of the frame
+		 * @param source     The string containing the next segment
+		 * @param offset     The start of the next segment in source
+		 * @param length     The length of the next segment
+		 * @return true if one of the entries matches, otherwise false
+		 */
+		private boolean matches(String className, String methodName, String source, int offset, int length) {
+			for(String segmentPrefix : segmentPrefixes) {
+				if(segmentPrefix.length() <= length && source.regionMatches(offset, segmentPrefix, 0, segmentPrefix.length())) {
+					return true;
+				}
+			}
+			if(patterns.length > 0) {
+				String name = className + "." + methodName;
+				for(Pattern pattern : patterns) {
+					if(pattern.matcher(name).find()) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+}
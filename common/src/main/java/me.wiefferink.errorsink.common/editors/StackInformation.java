@@ -1,74 +1,100 @@
 package me.wiefferink.errorsink.common.editors;
 
+import com.google.common.reflect.TypeToken;
 import io.sentry.event.EventBuilder;
 import io.sentry.event.interfaces.StackTraceInterface;
+import me.wiefferink.errorsink.common.EventContext;
 import me.wiefferink.errorsink.common.EventEditor;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 import org.apache.logging.log4j.core.LogEvent;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 // Add information about the current stack
 public class StackInformation extends EventEditor {
 
-	// package+class+method prefixes to ignore
-	// Dots will be seen as anything, but that does not really matter
-	// TODO add to config?
-	private final static Set<String> ignoreStack = new HashSet<>(Arrays.asList(
-			"^me.wiefferink.errorsink", // Own collection classes
-			"^java.util.logging.Logger", // Logging getting to this class
-			"^io.sentry", // Sentry building the event
-			"^java.util.logging.Logger", // Java logging
-			"^org.apache.logging.log4j", // Log4j
-			"^java.lang.Thread.getStackTrace", // Getting stacktrace
+	// package+class+method prefixes to ignore when stackTrace.ignore is not in the config
+	private final static List<String> defaultIgnore = Arrays.asList(
+			"me.wiefferink.errorsink", // Own collection classes
+			"java.util.logging.Logger", // Java logging
+			"io.sentry", // Sentry building the event
+			"org.apache.logging.log4j", // Log4j
+			"java.lang.Thread.getStackTrace", // Getting stacktrace
 
 			// Spigot internal logging
-			"^org.bukkit.plugin.PluginLogger", // Bukkit logging
-			"^org.bukkit.craftbukkit.[0-9a-zA-Z_]+.util.ForwardLogHandler", // Log forwarder of Spigot
-			"^org.bukkit.craftbukkit.[0-9a-zA-Z_]+.LoggerOutputStream.flush",
-			"^sun.nio.cs.StreamEncoder.",
-			"^java.io.PrintStream.",
-			"^java.io.OutputStreamWriter."
-	));
-	private final static Set<Pattern> ignorePatterns = new HashSet<>();
-	static {
-		for(String igoreRegex : ignoreStack) {
-			ignorePatterns.add(Pattern.compile(igoreRegex));
+			"org.bukkit.plugin.PluginLogger", // Bukkit logging
+			"org.bukkit.craftbukkit.[0-9a-zA-Z_]+.util.ForwardLogHandler", // Log forwarder of Spigot
+			"org.bukkit.craftbukkit.[0-9a-zA-Z_]+.LoggerOutputStream.flush",
+			"sun.nio.cs.StreamEncoder.",
+			"java.io.PrintStream.",
+			"java.io.OutputStreamWriter."
+	);
+
+	private StackFilter ignoreStack;
+	private int maximumFrames;
+	private boolean onlyWithoutException;
+
+	public StackInformation(ConfigurationNode root) {
+		ConfigurationNode stackNode = root.getNode("stackTrace");
+		maximumFrames = stackNode.getNode("maximumFrames").getInt(100);
+		onlyWithoutException = stackNode.getNode("onlyWithoutException").getBoolean(false);
+
+		List<String> ignore = defaultIgnore;
+		ConfigurationNode ignoreNode = stackNode.getNode("ignore");
+		if(!ignoreNode.isVirtual()) {
+			try {
+				ignore = ignoreNode.getList(TypeToken.of(String.class));
+			} catch(ObjectMappingException e) {
+				throw new RuntimeException(e);
+			}
 		}
+		ignoreStack = new StackFilter(ignore);
+	}
+
+	/**
+	 * Check if the stack should be added to an event
+	 * @param thrown The exception of the event
+	 * @return true if the stack should be added, otherwise false
+	 */
+	private boolean shouldAddStack(Throwable thrown) {
+		return !onlyWithoutException || thrown == null;
+	}
+
+	@Override
+	public void captureEvent(EventContext context) {
+		// The stack of the logging thread is only available while logging
+		if(shouldAddStack(context.getThrowable())) {
+			context.setCapture(this, StackCapture.capture(ignoreStack, maximumFrames));
+		}
+	}
+
+	@Override
+	public void processEvent(EventBuilder eventBuilder, EventContext context) {
+		if(!shouldAddStack(context.getThrowable())) {
+			return;
+		}
+		StackTraceElement[] elements = (StackTraceElement[]) context.getCapture(this);
+		if(elements == null) {
+			elements = StackCapture.capture(ignoreStack, maximumFrames);
+		}
+		addStack(eventBuilder, elements);
 	}
 
 	@Override
 	public void processEvent(EventBuilder eventBuilder, LogEvent event) {
-		StackTraceElement[] elements = Thread.currentThread().getStackTrace();
-		// Filter StackTraceElements
-		// After finding the first not-ignored frame we don't want to ignore anything anymore
-		boolean foundCorrect = false;
-		List<StackTraceElement> filteredElements = new ArrayList<>();
-		for(StackTraceElement element : elements) {
-			// Check the ignore list
-			String prefix = element.getClassName() + "." + element.getMethodName();
-			if(!foundCorrect) {
-				boolean ignore = false;
-				for(Pattern ignorePattern : ignorePatterns) {
-					Matcher matcher = ignorePattern.matcher(prefix);
-					if(matcher.find()) {
-						ignore = true;
-						break;
-					}
-				}
-				if(ignore) {
-					continue;
-				}
-			}
-			foundCorrect = true;
-			filteredElements.add(element);
+		if(shouldAddStack(event.getThrown())) {
+			addStack(eventBuilder, StackCapture.capture(ignoreStack, maximumFrames));
 		}
+	}
 
-		eventBuilder.withSentryInterface(new StackTraceInterface(filteredElements.toArray(new StackTraceElement[filteredElements.size()])));
+	/**
+	 * Add the stack to an event
+	 * @param eventBuilder The builder to add the stack to
+	 * @param elements     The stack of the thread that logged the event, without the frames of logging and collecting the event
+	 */
+	private void addStack(EventBuilder eventBuilder, StackTraceElement[] elements) {
+		eventBuilder.withSentryInterface(new StackTraceInterface(elements));
 	}
 }
@@ -0,0 +1,235 @@
+package me.wiefferink.errorsink.common.filters;
+
+import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.EventContext;
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.RuleCounters;
+import me.wiefferink.errorsink.common.RuleTable;
+import me.wiefferink.errorsink.common.matching.MatchCache;
+import me.wiefferink.errorsink.common.matching.MessagePrefilter;
+import ninja.leaping.configurate.ConfigurationNode;
+import org.apache.logging.log4j.Level;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The events.filters and bypassing events.rules of a config, compiled once
+ */
+public class FilterChain {
+
+	// Rules with bypassFilters enabled, in config order
+	private final EventRuleMatcher[] bypassRules;
+	// Filters, in config order
+	private final EventRuleMatcher[] filters;
+	// Per filter counts for statistics, filter i has RuleTable id firstFilterId + i
+	private final RuleCounters counters;
+	private final int firstFilterId;
+	// Single scan over the message to skip rules and filters that cannot match
+	private final MessagePrefilter bypassPrefilter;
+	private final MessagePrefilter filterPrefilter;
+	// Bit n is set when events with level n*100 are dropped by a level-only filter,
+	// before any other filter or bypassing rule could match them
+	private final long deniedLevels;
+	// Index of the filter dropping each level of deniedLevels
+	private final int[] levelFilters = new int[Long.SIZE];
+	private final boolean usesMessage;
+	private final boolean usesException;
+	// Verdicts of recently seen lines, null when disabled
+	private final MatchCache<Integer> cache;
+	// Cached verdict objects, index of the dropping filter + 1, 0 when not dropped
+	private final Integer[] verdicts;
+
+	/**
+	 * Constructor
+	 * @param root      The root of the config
+	 * @param table     The compiled matchers of the config
+	 * @param cacheSize Number of verdicts of recently seen lines to remember, 0 or less to disable
+	 * @param counters  The counters to count dropped events in, by RuleTable id
+	 */
+	public FilterChain(ConfigurationNode root, RuleTable table, int cacheSize, RuleCounters counters) {
+		this.counters = counters;
+		List<EventRuleMatcher> bypassList = new ArrayList<>();
+		for(Map.Entry<Object, ? extends ConfigurationNode> rule : root.getNode(RuleTable.Section.EVENT_RULES.getPath()).getChildrenMap().entrySet()) {
+			if(rule.getValue().getNode("bypassFilters").getBoolean()) {
+				bypassList.add(table.getMatcher(table.getId(RuleTable.Section.EVENT_RULES, rule.getKey())));
+			}
+		}
+		bypassRules = bypassList.toArray(new EventRuleMatcher[bypassList.size()]);
+
+		firstFilterId = table.getFirstId(RuleTable.Section.EVENT_FILTERS);
+		int filterCount = table.getEndId(RuleTable.Section.EVENT_FILTERS) - firstFilterId;
+		filters = new EventRuleMatcher[filterCount];
+		for(int i = 0; i < filterCount; i++) {
+			filters[i] = table.getMatcher(firstFilterId + i);
+		}
+
+		bypassPrefilter = new MessagePrefilter(bypassRules);
+		filterPrefilter = new MessagePrefilter(filters);
+
+		// Levels the first possibly matching filter drops based on only the level, standard levels are multiples of 100
+		long denied = 0;
+		for(int bit = 0; bit < Long.SIZE; bit++) {
+			int intLevel = bit * 100;
+			if(canBypass(intLevel)) {
+				continue;
+			}
+			for(int i = 0; i < filters.length; i++) {
+				if(filters[i].canMatchLevel(intLevel)) {
+					if(filters[i].isLevelOnly()) {
+						denied |= 1L << bit;
+						levelFilters[bit] = i;
+					}
+					break;
+				}
+			}
+		}
+		deniedLevels = denied;
+
+		boolean messageNeeded = false;
+		boolean exceptionNeeded = false;
+		boolean threadNameNeeded = false;
+		List<EventRuleMatcher> allMatchers = new ArrayList<>(bypassList);
+		allMatchers.addAll(Arrays.asList(filters));
+		for(EventRuleMatcher matcher : allMatchers) {
+			messageNeeded |= matcher.usesMessage();
+			exceptionNeeded |= matcher.usesException();
+			threadNameNeeded |= matcher.usesThreadName();
+		}
+		usesMessage = messageNeeded;
+		usesException = exceptionNeeded;
+
+		// Without message patterns matching is cheap, and the cache would format every message
+		if(cacheSize > 0 && filters.length > 0 && usesMessage) {
+			cache = new MatchCache<>(cacheSize, threadNameNeeded);
+			verdicts = new Integer[filters.length + 1];
+			for(int i = 0; i < verdicts.length; i++) {
+				verdicts[i] = i;
+			}
+		} else {
+			cache = null;
+			verdicts = null;
+		}
+	}
+
+	/**
+	 * Check if a bypassing rule could match events of a level
+	 * @param intLevel The level to check
+	 * @return true if one of the bypassing rules allows the level, otherwise false
+	 */
+	private boolean canBypass(int intLevel) {
+		for(EventRuleMatcher bypassRule : bypassRules) {
+			if(bypassRule.canMatchLevel(intLevel)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if an event is dropped based on only its level, without formatting its message
+	 * Gives the same result as {@link #isFiltered(EventContext)} for the levels it drops
+	 * @param level The level of the event
+	 * @return true if a level-only filter drops all events of this level, otherwise false
+	 */
+	public boolean isFilteredByLevel(Level level) {
+		if(level == null) {
+			return false;
+		}
+		int intLevel = level.intLevel();
+		if(intLevel < 0 || intLevel % 100 != 0 || intLevel / 100 >= Long.SIZE) {
+			return false;
+		}
+		int bit = intLevel / 100;
+		if((deniedLevels & (1L << bit)) == 0) {
+			return false;
+		}
+		countFiltered(levelFilters[bit]);
+		return true;
+	}
+
+	/**
+	 * Check if there are no filters, in which case nothing is dropped
+	 * @return true if there are no filters, otherwise false
+	 */
+	public boolean isEmpty() {
+		return filters.length == 0;
+	}
+
+	/**
+	 * Check if an event should be dropped
+	 * @param context The event to check
+	 * @return true if a filter matches and no bypassing rule matches, otherwise false
+	 */
+	public boolean isFiltered(EventContext context) {
+		// The exception is not part of the key, only cache when it does not matter
+		boolean cacheable = cache != null && (!usesException || context.getThrowable() == null);
+		int filterIndex;
+		Integer cached = cacheable ? cache.get(context) : null;
+		if(cached != null) {
+			filterIndex = cached - 1;
+		} else {
+			filterIndex = match(context);
+			if(cacheable) {
+				cache.put(context, verdicts[filterIndex + 1]);
+			}
+		}
+
+		if(filterIndex < 0) {
+			return false;
+		}
+		countFiltered(filterIndex);
+		return true;
+	}
+
+	/**
+	 * Count an event dropped by a filter
+	 * @param filterIndex The index of the filter that dropped the event
+	 */
+	private void countFiltered(int filterIndex) {
+		ErrorSink.getStatistics().eventFiltered();
+		counters.increment(firstFilterId + filterIndex);
+	}
+
+	/**
+	 * Run the bypassing rules and filters on an event
+	 * @param context The event to check
+	 * @return The index of the filter that drops the event, or -1 if it is not dropped
+	 */
+	private int match(EventContext context) {
+		// Only format the message when a matcher has message patterns
+		String message = usesMessage ? context.getFormattedMessage() : null;
+
+		// Check if this event should bypass the filters
+		if(bypassRules.length > 0) {
+			long[] candidates = bypassPrefilter.getCandidates(message);
+			for(int i = 0; i < bypassRules.length; i++) {
+				if(MessagePrefilter.isCandidate(candidates, i) && bypassRules[i].matches(context) != null) {
+					return -1;
+				}
+			}
+		}
+
+		// Match all filters
+		if(filters.length > 0) {
+			long[] candidates = filterPrefilter.getCandidates(message);
+			for(int i = 0; i < filters.length; i++) {
+				if(MessagePrefilter.isCandidate(candidates, i) && filters[i].matches(context) != null) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the cache of verdicts of recently seen lines
+	 * @return The cache, or null if it is disabled
+	 */
+	public MatchCache<Integer> getCache() {
+		return cache;
+	}
+
+}
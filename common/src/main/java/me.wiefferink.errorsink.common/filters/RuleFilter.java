@@ -1,127 +1,56 @@
 package me.wiefferink.errorsink.common.filters;
 
-import com.google.common.collect.Lists;
 import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.EventContext;
 import me.wiefferink.errorsink.common.Log;
-import ninja.leaping.configurate.ConfigurationNode;
+import me.wiefferink.errorsink.common.Statistics;
 import org.apache.commons.lang.exception.ExceptionUtils;
-import org.apache.logging.log4j.Level;
-import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LogEvent;
-import org.apache.logging.log4j.core.Logger;
-import org.apache.logging.log4j.core.filter.AbstractFilter;
-import org.apache.logging.log4j.message.Message;
-import org.apache.logging.log4j.message.ParameterizedMessage;
 
-public class RuleFilter extends AbstractFilter {
-
-	private ConfigurationNode filters;
-	private ConfigurationNode rules;
-
-	/**
-	 * Constructor
-	 */
-	public RuleFilter(ConfigurationNode root) {
-		super(Filter.Result.DENY, Filter.Result.NEUTRAL);
-		filters = root.getNode("events", "filters");
-		rules = root.getNode("events", "rules");
-	}
+/**
+ * Runs the events.filters of the RuleSet of an event
+ * Not a log4j filter: ErrorSinkSentryAppender calls it from append(), so it shares the EventContext with the rules and editors
+ */
+public class RuleFilter {
 
 	/**
-	 * Return result based on the level
-	 * @param level The level to check
-	 * @return The result
+	 * Check if an event should be dropped
+	 * Events of a level that is dropped by a level-only filter are denied before formatting the message
+	 * @param context The event to check
+	 * @return DENY if the event should be dropped, otherwise NEUTRAL
 	 */
-	private Filter.Result process(String message, Level level, Throwable throwable, String threadName, String loggerName) {
+	public Filter.Result filter(EventContext context) {
+		Statistics statistics = ErrorSink.getStatistics();
+		statistics.eventSeen();
+		long start = System.nanoTime();
+		Filter.Result result = Filter.Result.NEUTRAL;
 		try {
-			if(filters == null) {
-				return onMismatch;
-			}
-
-			// Check if this event should bypass the filters
-			if(rules != null) {
-				// Match all rules
-				for(Object ruleKey : rules.getChildrenMap().keySet()) {
-					// Match event
-					if(rules.getNode(ruleKey, "bypassFilters").getBoolean() && ErrorSink.getPlugin().match(
-							Lists.newArrayList("events", "rules", ruleKey),
-							message,
-							level,
-							throwable,
-							threadName,
-							loggerName) != null) {
-						return onMismatch;
-					}
-				}
-			}
-
-			// Match all filters
-			for(Object ruleKey : filters.getChildrenMap().keySet()) {
-				// Match event
-				if(ErrorSink.getPlugin().match(
-						Lists.newArrayList("events", "filters", ruleKey),
-						message,
-						level,
-						throwable,
-						threadName,
-						loggerName) != null) {
-					return onMatch;
-				}
+			FilterChain chain = context.getRuleSet().getFilterChain();
+			if(chain.isFilteredByLevel(context.getLevel())) {
+				result = Filter.Result.DENY;
+			} else if(!chain.isEmpty() && chain.isFiltered(context)) {
+				result = Filter.Result.DENY;
 			}
 		} catch(Exception e) {
 			// Causing exceptions within a filter will crash the server, therefore we catch everything
 			Log.error("Filter failed to execute filters:", ExceptionUtils.getStackTrace(e));
 		}
 
-		return onMismatch;
+		statistics.getFilterLatency().recordSince(start);
+		return result;
 	}
 
-	@Override
-	public Filter.Result filter(Logger logger, Level level, Marker marker, String message, Object... params) {
-		return process(
-				ParameterizedMessage.format(message, params),
-				level,
-				null,
-				null,
-				logger.getName()
-		);
-	}
-
-	@Override
-	public Filter.Result filter(Logger logger, Level level, Marker marker, Object message, Throwable throwable) {
-		return process(
-				message == null ? null : message.toString(),
-				level,
-				throwable,
-				null,
-				logger == null ? null : logger.getName()
-		);
-	}
-
-	@Override
-	public Filter.Result filter(Logger logger, Level level, Marker marker, Message message, Throwable throwable) {
-		return process(
-				message == null ? null : message.getFormattedMessage(),
-				level,
-				throwable,
-				null,
-				logger == null ? null : logger.getName()
-		);
-	}
-
-	@Override
+	/**
+	 * Check if an event should be dropped
+	 * @param logEvent The event to check
+	 * @return DENY if the event should be dropped, otherwise NEUTRAL
+	 */
 	public Filter.Result filter(LogEvent logEvent) {
 		if(logEvent == null) {
-			return onMismatch;
+			return Filter.Result.NEUTRAL;
 		}
-		return process(
-				logEvent.getMessage() == null ? null : logEvent.getMessage().getFormattedMessage(),
-				logEvent.getLevel(),
-				logEvent.getThrown(),
-				logEvent.getThreadName(),
-				logEvent.getLoggerName()
-		);
+		return filter(new EventContext(logEvent));
 	}
 
 }
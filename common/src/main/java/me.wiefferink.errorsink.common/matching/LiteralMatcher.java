@@ -0,0 +1,143 @@
+package me.wiefferink.errorsink.common.matching;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Finds which of a set of literals occur in a text with a single scan (Aho-Corasick automaton)
+ * Each literal is registered with an id, matching reports the ids of all literals found in the text
+ */
+public class LiteralMatcher {
+
+	private final Node root = new Node();
+	private boolean built = false;
+
+	/**
+	 * Add a literal to search for
+	 * @param literal The literal
+	 * @param id      The id to report when the literal is found
+	 */
+	public void add(String literal, int id) {
+		if(built) {
+			throw new IllegalStateException("LiteralMatcher is already built");
+		}
+		Node node = root;
+		for(int i = 0; i < literal.length(); i++) {
+			node = node.getOrCreateChild(literal.charAt(i));
+		}
+		node.addOutput(id);
+	}
+
+	/**
+	 * Compute the failure links, required before matching
+	 */
+	public void build() {
+		Deque<Node> queue = new ArrayDeque<>();
+		root.failure = root;
+		for(Node child : root.children) {
+			child.failure = root;
+			queue.add(child);
+		}
+		while(!queue.isEmpty()) {
+			Node node = queue.poll();
+			for(int i = 0; i < node.keys.length; i++) {
+				char key = node.keys[i];
+				Node child = node.children[i];
+				Node failure = node.failure;
+				while(failure != root && failure.getChild(key) == null) {
+					failure = failure.failure;
+				}
+				Node target = failure.getChild(key);
+				child.failure = target == null || target == child ? root : target;
+				// Literals ending at the failure node also end here
+				for(int output : child.failure.outputs) {
+					child.addOutput(output);
+				}
+				queue.add(child);
+			}
+		}
+		built = true;
+	}
+
+	/**
+	 * Scan a text and mark the ids of all literals that occur in it
+	 * The base bitset is only copied when a literal is found that is not marked yet, so a text without new literals does not allocate
+	 * @param text The text to scan
+	 * @param base Bitset with the ids that are marked already, should be large enough for all ids, is not modified
+	 * @return The base bitset if nothing new was found, otherwise a copy with the found ids marked
+	 */
+	public long[] match(String text, long[] base) {
+		if(!built) {
+			throw new IllegalStateException("LiteralMatcher is not built yet");
+		}
+		long[] found = base;
+		Node node = root;
+		for(int i = 0; i < text.length(); i++) {
+			char current = text.charAt(i);
+			Node next = node.getChild(current);
+			while(next == null && node != root) {
+				node = node.failure;
+				next = node.getChild(current);
+			}
+			node = next == null ? root : next;
+			for(int output : node.outputs) {
+				long bit = 1L << output;
+				if((found[output >>> 6] & bit) == 0) {
+					if(found == base) {
+						found = base.clone();
+					}
+					found[output >>> 6] |= bit;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Node of the trie, children are kept in sorted arrays to keep lookups allocation free
+	 */
+	private static class Node {
+		private char[] keys = new char[0];
+		private Node[] children = new Node[0];
+		private int[] outputs = new int[0];
+		private Node failure;
+
+		private Node getChild(char key) {
+			int position = Arrays.binarySearch(keys, key);
+			return position < 0 ? null : children[position];
+		}
+
+		private Node getOrCreateChild(char key) {
+			int position = Arrays.binarySearch(keys, key);
+			if(position >= 0) {
+				return children[position];
+			}
+
+			// Insert while keeping keys sorted
+			int insert = -position - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insert);
+			System.arraycopy(children, 0, newChildren, 0, insert);
+			newKeys[insert] = key;
+			newChildren[insert] = new Node();
+			System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+			System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[insert];
+		}
+
+		private void addOutput(int id) {
+			for(int output : outputs) {
+				if(output == id) {
+					return;
+				}
+			}
+			outputs = Arrays.copyOf(outputs, outputs.length + 1);
+			outputs[outputs.length - 1] = id;
+		}
+	}
+
+}
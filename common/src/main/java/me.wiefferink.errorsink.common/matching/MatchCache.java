@@ -0,0 +1,153 @@
+package me.wiefferink.errorsink.common.matching;
+
+import me.wiefferink.errorsink.common.EventContext;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers match results of recently seen log lines, keyed by level, logger name and message (and thread name if needed)
+ * Servers repeat the same spam lines thousands of times, a repeated line then costs one probe instead of running all regexes.
+ * Fixed size and direct mapped: a new line replaces the line in its slot, a hit does not allocate anything.
+ * Entries are immutable, so slots can be read and replaced by multiple threads without locking.
+ * @param <V> The type of the cached result
+ */
+public class MatchCache<V> {
+
+	private final Entry<V>[] entries;
+	private final int mask;
+	private final boolean keyThreadName;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Constructor
+	 * @param size          The number of entries, rounded up to a power of two
+	 * @param keyThreadName true if results depend on the thread name, otherwise lines from different threads share entries
+	 */
+	@SuppressWarnings("unchecked")
+	public MatchCache(int size, boolean keyThreadName) {
+		int capacity = Integer.highestOneBit(Math.max(1, Math.min(size, 1 << 30) - 1)) << 1;
+		this.entries = (Entry<V>[]) new Entry[capacity];
+		this.mask = capacity - 1;
+		this.keyThreadName = keyThreadName;
+	}
+
+	/**
+	 * Get the cached result of an event
+	 * @param context The event to get the result for
+	 * @return The result, or null if the line is not in the cache
+	 */
+	public V get(EventContext context) {
+		V result = peek(context);
+		if(result != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * Get the cached result of an event, without counting it as hit or miss
+	 * For lookups that do not fill the cache on a miss
+	 * @param context The event to get the result for
+	 * @return The result, or null if the line is not in the cache
+	 */
+	public V peek(EventContext context) {
+		String message = context.getFormattedMessage();
+		int hash = hash(context, message);
+		Entry<V> entry = entries[hash & mask];
+		if(entry != null
+				&& entry.hash == hash
+				&& entry.intLevel == context.getIntLevel()
+				&& Objects.equals(entry.loggerName, context.getLoggerName())
+				&& (!keyThreadName || Objects.equals(entry.threadName, context.getThreadName()))
+				&& Objects.equals(entry.message, message)) {
+			return entry.value;
+		}
+		return null;
+	}
+
+	/**
+	 * Store the result of an event
+	 * @param context The event the result is for
+	 * @param value   The result, not null
+	 */
+	public void put(EventContext context, V value) {
+		String message = context.getFormattedMessage();
+		int hash = hash(context, message);
+		entries[hash & mask] = new Entry<>(
+				hash,
+				context.getIntLevel(),
+				context.getLoggerName(),
+				keyThreadName ? context.getThreadName() : null,
+				message,
+				value
+		);
+	}
+
+	/**
+	 * Calculate the hash of the key of an event
+	 * @param context The event
+	 * @param message The formatted message of the event
+	 * @return The hash, spread to also use the high bits for the slot
+	 */
+	private int hash(EventContext context, String message) {
+		int hash = context.getIntLevel();
+		hash = 31 * hash + Objects.hashCode(context.getLoggerName());
+		if(keyThreadName) {
+			hash = 31 * hash + Objects.hashCode(context.getThreadName());
+		}
+		hash = 31 * hash + Objects.hashCode(message);
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Get the number of entries
+	 * @return The number of entries
+	 */
+	public int getSize() {
+		return entries.length;
+	}
+
+	/**
+	 * Get the number of lookups that found a result
+	 * @return The number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of lookups that did not find a result
+	 * @return The number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + getSize() + " hits=" + getHits() + " misses=" + getMisses();
+	}
+
+	private static class Entry<V> {
+		private final int hash;
+		private final int intLevel;
+		private final String loggerName;
+		private final String threadName;
+		private final String message;
+		private final V value;
+
+		private Entry(int hash, int intLevel, String loggerName, String threadName, String message, V value) {
+			this.hash = hash;
+			this.intLevel = intLevel;
+			this.loggerName = loggerName;
+			this.threadName = threadName;
+			this.message = message;
+			this.value = value;
+		}
+	}
+
+}
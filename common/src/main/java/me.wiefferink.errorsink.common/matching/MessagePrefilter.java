@@ -0,0 +1,63 @@
+package me.wiefferink.errorsink.common.matching;
+
+import me.wiefferink.errorsink.common.EventRuleMatcher;
+
+/**
+ * Determines which matchers of a list can possibly match a message, with a single scan over the message
+ * Matchers that have message patterns with required literals are only candidates when one of those literals is found,
+ * matchers without message patterns or with patterns without a required literal are always candidates
+ */
+public class MessagePrefilter {
+
+	private final LiteralMatcher literalMatcher;
+	// Matchers that are candidates regardless of the message
+	private final long[] alwaysCandidates;
+	private final boolean hasLiterals;
+
+	/**
+	 * Constructor
+	 * @param matchers The matchers to prefilter for, candidates are reported by index in this array
+	 */
+	public MessagePrefilter(EventRuleMatcher[] matchers) {
+		literalMatcher = new LiteralMatcher();
+		alwaysCandidates = new long[(matchers.length + 63) >>> 6];
+		boolean foundLiteral = false;
+		for(int i = 0; i < matchers.length; i++) {
+			String[] literals = matchers[i].getRequiredMessageLiterals();
+			if(literals == null) {
+				alwaysCandidates[i >>> 6] |= 1L << i;
+				continue;
+			}
+			for(String literal : literals) {
+				literalMatcher.add(literal, i);
+				foundLiteral = true;
+			}
+		}
+		literalMatcher.build();
+		hasLiterals = foundLiteral;
+	}
+
+	/**
+	 * Get the matchers that can possibly match a message
+	 * Only allocates when the message contains one of the literals, otherwise a shared array is returned
+	 * @param message The message to check
+	 * @return Bitset with the indexes of the matchers that might match, should not be modified
+	 */
+	public long[] getCandidates(String message) {
+		if(message == null || !hasLiterals) {
+			return alwaysCandidates;
+		}
+		return literalMatcher.match(message, alwaysCandidates);
+	}
+
+	/**
+	 * Check if a matcher is marked as candidate
+	 * @param candidates The candidates as returned by {@link #getCandidates(String)}
+	 * @param index      The index of the matcher
+	 * @return true if the matcher might match, otherwise false
+	 */
+	public static boolean isCandidate(long[] candidates, int index) {
+		return (candidates[index >>> 6] & (1L << index)) != 0;
+	}
+
+}
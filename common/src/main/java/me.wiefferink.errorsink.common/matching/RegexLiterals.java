@@ -0,0 +1,338 @@
+package me.wiefferink.errorsink.common.matching;
+
+/**
+ * Finds literal text in a regex that any input matching the regex has to contain,
+ * and detects regexes that are just a (possibly anchored) literal
+ * Only handles the syntax used in practice by rules, anything unknown results in no literal (which is always safe)
+ */
+public class RegexLiterals {
+
+	// Literals shorter than this match too many inputs to be useful as prefilter
+	private static final int MINIMUM_LENGTH = 2;
+
+	private final String regex;
+	private int index;
+	private StringBuilder run;
+	private String longest;
+	private boolean analyzed;
+	// Literal-only tracking, stays valid as long as nothing but literal characters and anchors are found
+	private boolean literalOnly = true;
+	private StringBuilder literal;
+	private boolean startAnchored;
+	private boolean endAnchored;
+
+	private RegexLiterals(String regex) {
+		this.regex = regex;
+		this.run = new StringBuilder();
+		this.literal = new StringBuilder();
+	}
+
+	/**
+	 * Analyze a regex
+	 * @param regex The regex to analyze, without flags
+	 * @return The analysis result
+	 */
+	public static RegexLiterals analyze(String regex) {
+		RegexLiterals analysis = new RegexLiterals(regex);
+		analysis.analyzed = analysis.scan();
+		if(!analysis.analyzed) {
+			analysis.literalOnly = false;
+		}
+		return analysis;
+	}
+
+	/**
+	 * Get the longest literal that every match of a regex contains
+	 * @param regex The regex to analyze, without flags
+	 * @return The literal, or null if the regex has no (usable) required literal
+	 */
+	public static String getRequiredLiteral(String regex) {
+		if(regex == null) {
+			return null;
+		}
+		return analyze(regex).getRequiredLiteral();
+	}
+
+	/**
+	 * Get the longest literal that every match of the regex contains
+	 * @return The literal, or null if the regex has no (usable) required literal
+	 */
+	public String getRequiredLiteral() {
+		if(!analyzed || longest == null || longest.length() < MINIMUM_LENGTH) {
+			return null;
+		}
+		return longest;
+	}
+
+	/**
+	 * Check if the regex only consists of literal characters, optionally anchored with ^ and $
+	 * @return true if the regex is a literal, otherwise false
+	 */
+	public boolean isLiteral() {
+		return literalOnly && literal.length() > 0;
+	}
+
+	/**
+	 * Get the literal the regex consists of
+	 * @return The unescaped literal, only valid if {@link #isLiteral()} returns true
+	 */
+	public String getLiteral() {
+		return literal.toString();
+	}
+
+	/**
+	 * Check if the regex starts with ^
+	 * @return true if the regex is anchored at the start, otherwise false
+	 */
+	public boolean isStartAnchored() {
+		return startAnchored;
+	}
+
+	/**
+	 * Check if the regex ends with $
+	 * @return true if the regex is anchored at the end, otherwise false
+	 */
+	public boolean isEndAnchored() {
+		return endAnchored;
+	}
+
+	/**
+	 * Walk over the top level of the regex, collecting runs of literal characters
+	 * @return true if the regex could be analyzed, false if a required literal cannot be determined
+	 */
+	private boolean scan() {
+		int length = regex.length();
+		if(regex.startsWith("^")) {
+			startAnchored = true;
+			index++;
+		}
+		while(index < length) {
+			char current = regex.charAt(index);
+			if(current != '\\') {
+				literalOnly &= isLiteralCharacter(current) || (current == '$' && index == length - 1);
+			}
+			switch(current) {
+				case '\\':
+					if(!scanEscape()) {
+						// A top level alternation could follow, nothing found so far is known to be required
+						return false;
+					}
+					break;
+				case '[':
+					endRun();
+					index = skipCharacterClass(regex, index);
+					break;
+				case '(':
+					endRun();
+					if(regex.startsWith("(?", index) && index + 2 < length && ":=!<>".indexOf(regex.charAt(index + 2)) == -1) {
+						// Inline flags like (?i) change how literals match
+						return false;
+					}
+					index = skipGroup(index);
+					if(index < 0) {
+						return false;
+					}
+					break;
+				case ')':
+				case '|':
+					// Alternation at the top level means nothing is required
+					return false;
+				case '*':
+				case '?':
+					// Previous character is optional
+					dropLastCharacter();
+					endRun();
+					index = skipQuantifierSuffix(index + 1);
+					break;
+				case '+':
+					// Previous character is required, but repeated
+					endRun();
+					index = skipQuantifierSuffix(index + 1);
+					break;
+				case '{':
+					int close = regex.indexOf('}', index);
+					if(close < 0) {
+						return false;
+					}
+					String minimum = regex.substring(index + 1, close);
+					if(minimum.contains(",")) {
+						minimum = minimum.substring(0, minimum.indexOf(','));
+					}
+					if(minimum.trim().equals("0")) {
+						dropLastCharacter();
+					}
+					endRun();
+					index = skipQuantifierSuffix(close + 1);
+					break;
+				case '$':
+					endAnchored = index == length - 1;
+					endRun();
+					index++;
+					break;
+				case '.':
+				case '^':
+					endRun();
+					index++;
+					break;
+				default:
+					appendLiteral(current);
+					index++;
+			}
+		}
+		endRun();
+		return true;
+	}
+
+	/**
+	 * Handle an escape sequence at the current index
+	 * @return true if scanning can continue, false if the escape is not understood
+	 */
+	private boolean scanEscape() {
+		if(index + 1 >= regex.length()) {
+			return false;
+		}
+		char escaped = regex.charAt(index + 1);
+		if(escaped == 'Q') {
+			// Quoted section until \E
+			int end = regex.indexOf("\\E", index + 2);
+			if(end < 0) {
+				end = regex.length();
+			}
+			for(int i = index + 2; i < end; i++) {
+				appendLiteral(regex.charAt(i));
+			}
+			index = Math.min(end + 2, regex.length());
+			return true;
+		}
+		if(Character.isLetterOrDigit(escaped)) {
+			// Escapes with arguments (properties, hex and unicode characters, backreferences) are not worth parsing
+			if("pPxuck0123456789".indexOf(escaped) != -1) {
+				return false;
+			}
+			// Character classes, boundaries and control characters
+			literalOnly = false;
+			endRun();
+			index += 2;
+			return true;
+		}
+		appendLiteral(escaped);
+		index += 2;
+		return true;
+	}
+
+	/**
+	 * Check if a character outside of an escape is matched literally
+	 * @param character The character to check
+	 * @return true if the character only matches itself, otherwise false
+	 */
+	private boolean isLiteralCharacter(char character) {
+		return "[](){}*+?|.^$".indexOf(character) == -1;
+	}
+
+	/**
+	 * Add a literal character to the current run
+	 * @param character The character to add
+	 */
+	private void appendLiteral(char character) {
+		run.append(character);
+		literal.append(character);
+	}
+
+	/**
+	 * Skip a character class
+	 * @param regex The regex containing the character class
+	 * @param start The index of the opening bracket
+	 * @return The index after the closing bracket
+	 */
+	static int skipCharacterClass(String regex, int start) {
+		int position = start + 1;
+		if(position < regex.length() && regex.charAt(position) == '^') {
+			position++;
+		}
+		// Closing bracket directly at the start is a literal
+		if(position < regex.length() && regex.charAt(position) == ']') {
+			position++;
+		}
+		int depth = 1;
+		while(position < regex.length() && depth > 0) {
+			char current = regex.charAt(position);
+			if(current == '\\') {
+				position++;
+			} else if(current == '[') {
+				depth++;
+			} else if(current == ']') {
+				depth--;
+			}
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Skip a group, including nested groups
+	 * @param start The index of the opening parenthesis
+	 * @return The index after the closing parenthesis, or -1 if the group is not closed
+	 */
+	private int skipGroup(int start) {
+		int position = start + 1;
+		int depth = 1;
+		while(position < regex.length()) {
+			char current = regex.charAt(position);
+			if(current == '\\') {
+				if(regex.startsWith("\\Q", position)) {
+					int end = regex.indexOf("\\E", position + 2);
+					if(end < 0) {
+						return -1;
+					}
+					position = end + 2;
+					continue;
+				}
+				position += 2;
+				continue;
+			}
+			if(current == '[') {
+				position = skipCharacterClass(regex, position);
+				continue;
+			}
+			if(current == '(') {
+				depth++;
+			} else if(current == ')') {
+				depth--;
+				if(depth == 0) {
+					return position + 1;
+				}
+			}
+			position++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Skip the lazy or possessive marker of a quantifier
+	 * @param position The index directly after the quantifier
+	 * @return The index after the marker
+	 */
+	private int skipQuantifierSuffix(int position) {
+		if(position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+			return position + 1;
+		}
+		return position;
+	}
+
+	private void dropLastCharacter() {
+		if(run.length() > 0) {
+			run.setLength(run.length() - 1);
+		}
+	}
+
+	/**
+	 * Finish the current literal run, keeping it if it is the longest so far
+	 */
+	private void endRun() {
+		if(run.length() > 0 && (longest == null || run.length() > longest.length())) {
+			longest = run.toString();
+		}
+		run.setLength(0);
+	}
+
+}
@@ -0,0 +1,109 @@
+package me.wiefferink.errorsink.common.matching;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Groups captured by matching a rule, stored in arrays sized for the rule up front
+ * Rules only capture a handful of groups, so lookups by scanning are cheaper than hashing
+ */
+public class RuleCaptures extends AbstractMap<String, String> {
+
+	private String[] keys;
+	private String[] values;
+	private int size;
+
+	/**
+	 * Constructor
+	 * @param capacity The expected maximum number of captures
+	 */
+	public RuleCaptures(int capacity) {
+		keys = new String[capacity];
+		values = new String[capacity];
+	}
+
+	private int indexOf(Object key) {
+		for(int i = 0; i < size; i++) {
+			if(keys[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String put(String key, String value) {
+		int index = indexOf(key);
+		if(index >= 0) {
+			String old = values[index];
+			values[index] = value;
+			return old;
+		}
+
+		if(size == keys.length) {
+			int newCapacity = Math.max(4, size * 2);
+			String[] newKeys = new String[newCapacity];
+			String[] newValues = new String[newCapacity];
+			System.arraycopy(keys, 0, newKeys, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			keys = newKeys;
+			values = newValues;
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		return null;
+	}
+
+	@Override
+	public String get(Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : values[index];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		return new AbstractSet<Entry<String, String>>() {
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				return new Iterator<Entry<String, String>>() {
+					private int index = 0;
+
+					@Override
+					public boolean hasNext() {
+						return index < size;
+					}
+
+					@Override
+					public Entry<String, String> next() {
+						if(index >= size) {
+							throw new NoSuchElementException();
+						}
+						Entry<String, String> result = new SimpleImmutableEntry<>(keys[index], values[index]);
+						index++;
+						return result;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,267 @@
+package me.wiefferink.errorsink.common.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled regex of a rule, with a fast path for regexes that are just a literal
+ */
+public class RulePattern {
+
+	// Regex to find named groups inside a regex (the named group-name might be escaped with '\Q'<group>'\E', which this also accounts for)
+	private static final Pattern NAMED_GROUP = Pattern.compile("\\(\\?<(\\\\Q)?(?<group>[a-zA-Z][a-zA-Z0-9]*)(\\\\E)?>");
+	private static final String[] NO_NAMES = new String[0];
+	private static final int[] NO_INDEXES = new int[0];
+
+	/**
+	 * How the pattern is matched
+	 */
+	public enum Kind {
+		// ^literal$: input equals the literal
+		EXACT,
+		// ^literal: input starts with the literal
+		PREFIX,
+		// literal: input contains the literal
+		CONTAINS,
+		// Anything else: full regex evaluation
+		REGEX
+	}
+
+	private final Pattern pattern;
+	private final Kind kind;
+	private final String literal;
+	private final String requiredLiteral;
+	// Named groups with their group index (-1 when the index could not be determined)
+	private final String[] groupNames;
+	private final int[] groupIndexes;
+	// Keys used for the numbered groups: "1", "2", etc.
+	private final String[] numberedKeys;
+
+	private RulePattern(Pattern pattern, Kind kind, String literal, String requiredLiteral) {
+		this.pattern = pattern;
+		this.kind = kind;
+		this.literal = literal;
+		this.requiredLiteral = requiredLiteral;
+
+		int groupCount = pattern.matcher("").groupCount();
+		numberedKeys = new String[groupCount];
+		for(int i = 0; i < groupCount; i++) {
+			numberedKeys[i] = Integer.toString(i + 1);
+		}
+
+		if(groupCount == 0) {
+			groupNames = NO_NAMES;
+			groupIndexes = NO_INDEXES;
+		} else {
+			List<String> names = new ArrayList<>();
+			List<Integer> indexes = new ArrayList<>();
+			int foundGroups = collectGroups(pattern.pattern(), names, indexes);
+			groupNames = names.toArray(new String[names.size()]);
+			groupIndexes = new int[groupNames.length];
+			for(int i = 0; i < groupIndexes.length; i++) {
+				// Fall back to lookup by name if counting groups went wrong
+				groupIndexes[i] = foundGroups == groupCount ? indexes.get(i) : -1;
+			}
+		}
+	}
+
+	/**
+	 * Find the named groups in a regex and determine their group index
+	 * @param regex   The regex to search
+	 * @param names   List to add the found names to
+	 * @param indexes List to add the index of each found name to
+	 * @return The number of capturing groups found
+	 */
+	private static int collectGroups(String regex, List<String> names, List<Integer> indexes) {
+		int group = 0;
+		Matcher nameMatcher = NAMED_GROUP.matcher(regex);
+		int position = 0;
+		while(position < regex.length()) {
+			char current = regex.charAt(position);
+			if(current == '\\') {
+				if(regex.startsWith("\\Q", position)) {
+					int end = regex.indexOf("\\E", position + 2);
+					position = end < 0 ? regex.length() : end + 2;
+				} else {
+					position += 2;
+				}
+				continue;
+			}
+			if(current == '[') {
+				position = RegexLiterals.skipCharacterClass(regex, position);
+				continue;
+			}
+			if(current == '(') {
+				if(!regex.startsWith("(?", position)) {
+					group++;
+				} else if(nameMatcher.region(position, regex.length()).lookingAt()) {
+					group++;
+					names.add(nameMatcher.group("group"));
+					indexes.add(group);
+				}
+			}
+			position++;
+		}
+		return group;
+	}
+
+	/**
+	 * Compile a regex and classify it
+	 * @param regex The regex to compile
+	 * @return The compiled RulePattern
+	 * @throws java.util.regex.PatternSyntaxException when the regex is invalid
+	 */
+	public static RulePattern compile(String regex) {
+		Pattern pattern = Pattern.compile(regex);
+		RegexLiterals analysis = RegexLiterals.analyze(regex);
+
+		Kind kind = Kind.REGEX;
+		String literal = null;
+		if(analysis.isLiteral()) {
+			literal = analysis.getLiteral();
+			if(analysis.isStartAnchored() && analysis.isEndAnchored()) {
+				kind = Kind.EXACT;
+			} else if(analysis.isStartAnchored()) {
+				kind = Kind.PREFIX;
+			} else if(!analysis.isEndAnchored()) {
+				kind = Kind.CONTAINS;
+			}
+		}
+		return new RulePattern(pattern, kind, literal, analysis.getRequiredLiteral());
+	}
+
+	/**
+	 * Check if the pattern can be matched without running the regex
+	 * @return true if the pattern is a literal, false if it needs full regex evaluation
+	 */
+	public boolean isLiteral() {
+		return kind != Kind.REGEX;
+	}
+
+	/**
+	 * Match the literal of this pattern against an input, only valid when {@link #isLiteral()} returns true
+	 * Gives the same result as Pattern.matcher(input).find() without allocating
+	 * @param input The input to match
+	 * @return true if the input matches, otherwise false
+	 */
+	public boolean matchesLiteral(String input) {
+		switch(kind) {
+			case EXACT:
+				// $ also matches before a line terminator at the end of the input
+				return input.startsWith(literal) && isLineTerminator(input, literal.length());
+			case PREFIX:
+				return input.startsWith(literal);
+			case CONTAINS:
+				return input.contains(literal);
+			default:
+				throw new IllegalStateException("RulePattern " + pattern + " is not a literal");
+		}
+	}
+
+	/**
+	 * Check if the rest of a string from an index is empty or a single line terminator
+	 * @param input The string to check
+	 * @param index The index to check from
+	 * @return true if only a line terminator or nothing follows the index
+	 */
+	private static boolean isLineTerminator(String input, int index) {
+		int remaining = input.length() - index;
+		if(remaining == 0) {
+			return true;
+		}
+		if(remaining == 1) {
+			char last = input.charAt(index);
+			return last == '\n' || last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029';
+		}
+		return remaining == 2 && input.charAt(index) == '\r' && input.charAt(index + 1) == '\n';
+	}
+
+	/**
+	 * Check if a match on the start of an input (up to a line break) is also a match on the full input
+	 * True for patterns without groups and without constructs that look at what follows the match (like $ and lookaheads),
+	 * which allows matching the first line of a stacktrace before rendering all of it
+	 * @return true if the pattern can be matched on a prefix of the input, otherwise false
+	 */
+	public boolean canMatchPrefix() {
+		if(kind == Kind.PREFIX || kind == Kind.CONTAINS) {
+			return true;
+		}
+		if(kind == Kind.EXACT || getCaptureCount() > 0) {
+			return false;
+		}
+		String regex = pattern.pattern();
+		return !regex.contains("$")
+				&& !regex.contains("\\z")
+				&& !regex.contains("\\Z")
+				&& !regex.contains("\\G")
+				&& !regex.contains("(?=")
+				&& !regex.contains("(?!");
+	}
+
+	/**
+	 * Create a regex matcher for an input
+	 * @param input The input to match
+	 * @return The matcher
+	 */
+	public Matcher matcher(String input) {
+		return pattern.matcher(input);
+	}
+
+	/**
+	 * Add the captured groups of a successful match to a map
+	 * @param matcher The matcher that found a match
+	 * @param target  The map to add the groups to
+	 */
+	public void collectGroups(Matcher matcher, Map<String, String> target) {
+		// Named groups
+		for(int i = 0; i < groupNames.length; i++) {
+			target.put(groupNames[i], groupIndexes[i] < 0 ? matcher.group(groupNames[i]) : matcher.group(groupIndexes[i]));
+		}
+
+		// Numbered groups
+		for(int i = 0; i < numberedKeys.length; i++) {
+			target.put(numberedKeys[i], matcher.group(i + 1));
+		}
+	}
+
+	/**
+	 * Get the maximum number of entries {@link #collectGroups(Matcher, Map)} adds
+	 * @return The number of named and numbered groups
+	 */
+	public int getCaptureCount() {
+		return groupNames.length + numberedKeys.length;
+	}
+
+	/**
+	 * Get the compiled regex
+	 * @return The compiled regex
+	 */
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Get how this pattern is matched
+	 * @return The kind of this pattern
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get the longest literal any matching input contains
+	 * @return The required literal, or null if there is none
+	 */
+	public String getRequiredLiteral() {
+		return requiredLiteral;
+	}
+
+	@Override
+	public String toString() {
+		return pattern.pattern();
+	}
+
+}
@@ -0,0 +1,97 @@
+package me.wiefferink.errorsink.common.replay;
+
+import io.sentry.connection.Connection;
+import io.sentry.connection.ConnectionException;
+import io.sentry.connection.EventSendCallback;
+import io.sentry.event.Event;
+import io.sentry.event.interfaces.ExceptionInterface;
+import io.sentry.event.interfaces.MessageInterface;
+import io.sentry.event.interfaces.StackTraceInterface;
+import io.sentry.marshaller.json.ExceptionInterfaceBinding;
+import io.sentry.marshaller.json.JsonMarshaller;
+import io.sentry.marshaller.json.MessageInterfaceBinding;
+import io.sentry.marshaller.json.StackTraceInterfaceBinding;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection that writes events as JSON to a stream, one event per line, instead of sending them to Sentry
+ * Uses the marshaller of the Sentry client, so the lines contain what would have been sent
+ */
+public class JsonLinesConnection implements Connection {
+
+	private final OutputStream output;
+	private final JsonMarshaller marshaller;
+	private final Set<EventSendCallback> callbacks = new CopyOnWriteArraySet<>();
+	private final LongAdder written = new LongAdder();
+	private boolean closed;
+
+	/**
+	 * Constructor
+	 * @param output The stream to write to, closed together with the connection
+	 */
+	public JsonLinesConnection(OutputStream output) {
+		this.output = output;
+		marshaller = new JsonMarshaller();
+		marshaller.setCompression(false);
+		StackTraceInterfaceBinding stackTraceBinding = new StackTraceInterfaceBinding();
+		marshaller.addInterfaceBinding(StackTraceInterface.class, stackTraceBinding);
+		marshaller.addInterfaceBinding(ExceptionInterface.class, new ExceptionInterfaceBinding(stackTraceBinding));
+		marshaller.addInterfaceBinding(MessageInterface.class, new MessageInterfaceBinding());
+	}
+
+	@Override
+	public void send(Event event) throws ConnectionException {
+		// Marshal outside of the lock, only writing has to be in order
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+		try {
+			marshaller.marshall(event, buffer);
+			buffer.write('\n');
+			synchronized(this) {
+				if(closed) {
+					throw new ConnectionException("Connection is closed");
+				}
+				buffer.writeTo(output);
+			}
+		} catch(IOException e) {
+			ConnectionException exception = new ConnectionException("Failed to write event " + event.getId(), e);
+			for(EventSendCallback callback : callbacks) {
+				callback.onFailure(event, exception);
+			}
+			throw exception;
+		}
+		written.increment();
+		for(EventSendCallback callback : callbacks) {
+			callback.onSuccess(event);
+		}
+	}
+
+	@Override
+	public void addEventSendCallback(EventSendCallback eventSendCallback) {
+		callbacks.add(eventSendCallback);
+	}
+
+	/**
+	 * Get the number of events written
+	 * @return The number of events
+	 */
+	public long getWritten() {
+		return written.sum();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		// Also called by Sentry.close() when the appender stops
+		if(closed) {
+			return;
+		}
+		closed = true;
+		output.close();
+	}
+
+}
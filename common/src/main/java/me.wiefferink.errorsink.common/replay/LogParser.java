@@ -0,0 +1,154 @@
+package me.wiefferink.errorsink.common.replay;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a server log file into LogEvents, one event at a time
+ * Supports the latest.log format '[12:34:56] [Server thread/INFO]: message' and the console format '[12:34:56 INFO]: message'.
+ * Lines that do not start with a timestamp belong to the previous event, starting from an exception line they are its stacktrace.
+ */
+public class LogParser {
+
+	private static final Pattern LOG_FILE_LINE = Pattern.compile("^\\[(\\d{2}):(\\d{2}):(\\d{2})\\] \\[(.+)/([A-Z]+)\\]: (.*)$");
+	private static final Pattern CONSOLE_LINE = Pattern.compile("^\\[(\\d{2}):(\\d{2}):(\\d{2}) ([A-Z]+)\\]: (.*)$");
+	private static final Pattern EXCEPTION_LINE = Pattern.compile("^(?:Caused by: )?(?:[a-zA-Z_$][\\w$]*\\.)+[\\w$]*(?:Exception|Error|Throwable)(?::.*)?$");
+	// Bounds the memory used by a single event when a log has very long continuations
+	private static final int MAXIMUM_EXTRA_LINES = 1000;
+
+	private final BufferedReader reader;
+	private final String loggerName;
+	private long day;
+	private long previousTime;
+	private String pendingLine;
+	private long lines;
+
+	/**
+	 * Constructor
+	 * @param reader     The log to read
+	 * @param date       The date of the first line, log files only contain the time
+	 * @param loggerName The logger name to give events, log files do not contain it
+	 */
+	public LogParser(BufferedReader reader, LocalDate date, String loggerName) {
+		this.reader = reader;
+		this.loggerName = loggerName;
+		this.day = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * Read the next event
+	 * @return The event, or null at the end of the log
+	 * @throws IOException When reading fails
+	 */
+	public LogEvent next() throws IOException {
+		String line = pendingLine;
+		pendingLine = null;
+		// Skip until the first line with a timestamp
+		while(line == null || !isStart(line)) {
+			line = readLine();
+			if(line == null) {
+				return null;
+			}
+		}
+
+		int hours, minutes, seconds;
+		String threadName;
+		String levelName;
+		String message;
+		Matcher logFileMatcher = LOG_FILE_LINE.matcher(line);
+		if(logFileMatcher.matches()) {
+			hours = Integer.parseInt(logFileMatcher.group(1));
+			minutes = Integer.parseInt(logFileMatcher.group(2));
+			seconds = Integer.parseInt(logFileMatcher.group(3));
+			threadName = logFileMatcher.group(4);
+			levelName = logFileMatcher.group(5);
+			message = logFileMatcher.group(6);
+		} else {
+			Matcher consoleMatcher = CONSOLE_LINE.matcher(line);
+			consoleMatcher.matches();
+			hours = Integer.parseInt(consoleMatcher.group(1));
+			minutes = Integer.parseInt(consoleMatcher.group(2));
+			seconds = Integer.parseInt(consoleMatcher.group(3));
+			threadName = null;
+			levelName = consoleMatcher.group(4);
+			message = consoleMatcher.group(5);
+		}
+
+		// Continuation lines: more message lines, or the stacktrace
+		StringBuilder messageBuilder = null;
+		StringBuilder thrownBuilder = null;
+		int extraLines = 0;
+		String next;
+		while((next = readLine()) != null && !isStart(next)) {
+			if(extraLines++ >= MAXIMUM_EXTRA_LINES) {
+				continue;
+			}
+			if(thrownBuilder == null && (EXCEPTION_LINE.matcher(next).matches() || next.startsWith("\tat "))) {
+				thrownBuilder = new StringBuilder(next);
+			} else if(thrownBuilder != null) {
+				thrownBuilder.append('\n').append(next);
+			} else {
+				if(messageBuilder == null) {
+					messageBuilder = new StringBuilder(message);
+				}
+				messageBuilder.append('\n').append(next);
+			}
+		}
+		pendingLine = next;
+
+		return Log4jLogEvent.newBuilder()
+				.setLoggerName(loggerName)
+				.setLoggerFqcn(LogParser.class.getName())
+				.setLevel(Level.toLevel(levelName, Level.INFO))
+				.setThreadName(threadName)
+				.setTimeMillis(getTime(hours, minutes, seconds))
+				.setMessage(new SimpleMessage(messageBuilder == null ? message : messageBuilder.toString()))
+				.setThrown(thrownBuilder == null ? null : new ReplayedThrowable(thrownBuilder.toString()))
+				.build();
+	}
+
+	private String readLine() throws IOException {
+		String line = reader.readLine();
+		if(line != null) {
+			lines++;
+		}
+		return line;
+	}
+
+	private static boolean isStart(String line) {
+		return line.startsWith("[") && (LOG_FILE_LINE.matcher(line).matches() || CONSOLE_LINE.matcher(line).matches());
+	}
+
+	/**
+	 * Get the time of a line, moving to the next day when the time goes back
+	 * @return The time in milliseconds
+	 */
+	private long getTime(int hours, int minutes, int seconds) {
+		long time = day + TimeUnit.HOURS.toMillis(hours) + TimeUnit.MINUTES.toMillis(minutes) + TimeUnit.SECONDS.toMillis(seconds);
+		if(time < previousTime - TimeUnit.HOURS.toMillis(12)) {
+			day += TimeUnit.DAYS.toMillis(1);
+			time += TimeUnit.DAYS.toMillis(1);
+		}
+		previousTime = time;
+		return time;
+	}
+
+	/**
+	 * Get the number of lines read so far
+	 * @return The number of lines
+	 */
+	public long getLines() {
+		return lines;
+	}
+
+}
@@ -0,0 +1,205 @@
+package me.wiefferink.errorsink.common.replay;
+
+import io.sentry.Sentry;
+import io.sentry.SentryClient;
+import io.sentry.context.SingletonContextManager;
+import me.wiefferink.errorsink.common.EditorMonitor;
+import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.ErrorSinkSentryAppender;
+import me.wiefferink.errorsink.common.Log;
+import me.wiefferink.errorsink.common.StatisticsReport;
+import me.wiefferink.errorsink.common.editors.StackInformation;
+import org.apache.logging.log4j.core.LogEvent;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs a server log through the filters, rules and editors, writing the events that would be sent to Sentry to a file
+ * Use it to check a config against a real log before deploying it, or to measure the throughput of the pipeline.
+ *
+ * Usage: Replay [--config config.yml] [--output events.jsonl] [--threads n] latest.log
+ * For example with Maven: mvn -pl common exec:java -Dexec.mainClass=me.wiefferink.errorsink.common.replay.Replay -Dexec.args="logs/latest.log"
+ *
+ * Lines are parsed on the main thread and matched on the worker threads, the output is not in the order of the log.
+ * The stack of the replaying thread and breadcrumbs of interleaved lines mean nothing, so StackInformation and Breadcrumbs are not used.
+ * When rateLimit is enabled it runs on the times in the log, lines of the same second can be limited a bit differently than live.
+ */
+public class Replay {
+
+	// Events handed to a worker at once, a task per line costs more than matching it
+	private static final int BATCH_SIZE = 256;
+
+	public static void main(String[] args) throws Exception {
+		File configFile = null;
+		File outputFile = new File("replay.jsonl");
+		int threads = Runtime.getRuntime().availableProcessors();
+		File logFile = null;
+		for(int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if(i + 1 < args.length && "--config".equals(arg)) {
+				configFile = new File(args[++i]);
+			} else if(i + 1 < args.length && "--output".equals(arg)) {
+				outputFile = new File(args[++i]);
+			} else if(i + 1 < args.length && "--threads".equals(arg)) {
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+			} else if(logFile == null && !arg.startsWith("--")) {
+				logFile = new File(arg);
+			} else {
+				logFile = null;
+				break;
+			}
+		}
+		if(logFile == null) {
+			System.err.println("Usage: Replay [--config config.yml] [--output events.jsonl] [--threads n] latest.log");
+			System.exit(1);
+			return;
+		}
+
+		Log.setLogger(Logger.getLogger("ErrorSink"));
+		ErrorSink.init(new ReplayPlugin(configFile));
+		JsonLinesConnection connection = new JsonLinesConnection(new BufferedOutputStream(new FileOutputStream(outputFile)));
+		Sentry.setStoredClient(new SentryClient(connection, new SingletonContextManager()));
+
+		ErrorSinkSentryAppender appender = new ErrorSinkSentryAppender();
+		for(EditorMonitor monitor : appender.getEditorMonitors()) {
+			if(monitor.getEditor() instanceof StackInformation) {
+				appender.removeEventEditor(monitor.getEditor());
+			}
+		}
+		appender.setRateLimitOnEventTime(true);
+		if(appender.getRateLimiter() != null) {
+			System.out.println("Rate limiting is enabled, using the times in the log; disable rateLimit in the config to see all events");
+		}
+		appender.start();
+
+		// Bounded queue, the parser runs batches itself when the workers fall behind
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				threads,
+				threads,
+				0,
+				TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threads * 4),
+				new NamedThreadFactory(),
+				new ThreadPoolExecutor.CallerRunsPolicy()
+		);
+
+		long start = System.nanoTime();
+		long events = 0;
+		LogParser parser;
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(open(logFile), StandardCharsets.UTF_8))) {
+			parser = new LogParser(reader, getDate(logFile), "Minecraft");
+			List<LogEvent> batch = new ArrayList<>(BATCH_SIZE);
+			LogEvent event;
+			while((event = parser.next()) != null) {
+				batch.add(event);
+				events++;
+				if(batch.size() == BATCH_SIZE) {
+					submit(executor, appender, batch);
+					batch = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+			submit(executor, appender, batch);
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.DAYS);
+		// Send the queued events before stopping the appender closes the Sentry client
+		if(appender.getPipeline() != null) {
+			appender.getPipeline().shutdown();
+		}
+		appender.stop();
+		connection.close();
+		long elapsedNanos = System.nanoTime() - start;
+
+		double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+		System.out.println("Replayed " + logFile + " in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms using " + threads + " threads");
+		System.out.println("  lines: " + parser.getLines() + " (" + Math.round(parser.getLines() / seconds) + "/s)");
+		System.out.println("  events: " + events + " (" + Math.round(events / seconds) + "/s)");
+		System.out.println("  written: " + connection.getWritten() + " to " + outputFile);
+		for(String line : StatisticsReport.create(appender)) {
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Hand a batch of events to the workers
+	 * @param executor The workers
+	 * @param appender The appender to run the events through
+	 * @param batch    The events, in log order
+	 */
+	private static void submit(ThreadPoolExecutor executor, ErrorSinkSentryAppender appender, List<LogEvent> batch) {
+		if(batch.isEmpty()) {
+			return;
+		}
+		executor.execute(() -> {
+			for(LogEvent event : batch) {
+				appender.append(event);
+			}
+		});
+	}
+
+	/**
+	 * Open a log file, rotated logs are gzipped
+	 * @param logFile The file to open
+	 * @return The stream of the uncompressed log
+	 * @throws IOException When the file cannot be opened
+	 */
+	private static InputStream open(File logFile) throws IOException {
+		InputStream input = new FileInputStream(logFile);
+		if(logFile.getName().endsWith(".gz")) {
+			return new GZIPInputStream(input, 65536);
+		}
+		return input;
+	}
+
+	/**
+	 * Get the date of the first line of a log
+	 * Rotated logs are named like '2018-01-31-1.log.gz', otherwise the modification date is used,
+	 * which is only correct for a log that did not pass midnight
+	 * @param logFile The log file
+	 * @return The date
+	 */
+	private static LocalDate getDate(File logFile) {
+		String name = logFile.getName();
+		if(name.length() >= 10) {
+			try {
+				return LocalDate.parse(name.substring(0, 10));
+			} catch(DateTimeParseException ignored) {
+				// Not a rotated log
+			}
+		}
+		return Instant.ofEpochMilli(logFile.lastModified()).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "ErrorSink replay #" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package me.wiefferink.errorsink.common.replay;
+
+import me.wiefferink.errorsink.common.ErrorSinkPlugin;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Stand-in for the Spigot and Sponge plugins while replaying a log, there is no server to ask for information
+ */
+public class ReplayPlugin implements ErrorSinkPlugin {
+
+	private final URL configUrl;
+	private ConfigurationNode rootNode;
+
+	/**
+	 * Constructor
+	 * @param configFile The config to use, null for the default config.yml
+	 * @throws IOException When the config cannot be read
+	 */
+	public ReplayPlugin(File configFile) throws IOException {
+		this.configUrl = configFile == null ? ReplayPlugin.class.getResource("/config.yml") : configFile.toURI().toURL();
+		rootNode = loadPluginConfig();
+	}
+
+	@Override
+	public String getServerName() {
+		return "Replay";
+	}
+
+	@Override
+	public String getRelease() {
+		return "replay";
+	}
+
+	@Override
+	public ConfigurationNode getPluginConfig() {
+		return rootNode;
+	}
+
+	@Override
+	public ConfigurationNode loadPluginConfig() throws IOException {
+		return YAMLConfigurationLoader.builder()
+				.setURL(configUrl)
+				.build()
+				.load();
+	}
+
+	@Override
+	public void setPluginConfig(ConfigurationNode rootNode) {
+		this.rootNode = rootNode;
+	}
+
+	@Override
+	public SortedMap<String, String> getLoadedPlugins() {
+		return new TreeMap<>();
+	}
+
+	@Override
+	public String getServerVersion() {
+		return "unknown";
+	}
+
+	@Override
+	public int getOnlinePlayers() {
+		return 0;
+	}
+
+	@Override
+	public SortedMap<String, String> getExtraData() {
+		return new TreeMap<>();
+	}
+
+}
@@ -0,0 +1,98 @@
+package me.wiefferink.errorsink.common.replay;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Exception read back from the stacktrace text in a log file
+ * Prints exactly the original text, so rules matching the exception see the same text as on the server.
+ * The class of the original exception is not available, it is only part of the message.
+ */
+public class ReplayedThrowable extends Throwable {
+
+	private static final Pattern CLASS_NAME = Pattern.compile("^(?:[a-zA-Z_$][\\w$]*\\.)*[a-zA-Z_$][\\w$]*$");
+	private static final Pattern FRAME = Pattern.compile("^\\s+at (?:[^/]+/)?([^\\s(]+)\\.([^\\s.(]+)\\(([^:)]*)(?::(\\d+))?\\).*$");
+
+	private final String text;
+	private final String firstLine;
+
+	/**
+	 * Constructor
+	 * @param text The stacktrace as printed in the log, the first line has the exception class and message
+	 */
+	public ReplayedThrowable(String text) {
+		super(getFirstLine(text));
+		this.text = text;
+		this.firstLine = getFirstLine(text);
+		setStackTrace(parseFrames(text));
+	}
+
+	private static String getFirstLine(String text) {
+		int end = text.indexOf('\n');
+		return end < 0 ? text : text.substring(0, end);
+	}
+
+	/**
+	 * Parse the frames of the outermost exception, causes are only kept as text
+	 * @param text The stacktrace text
+	 * @return The frames
+	 */
+	private static StackTraceElement[] parseFrames(String text) {
+		List<StackTraceElement> frames = new ArrayList<>();
+		String[] lines = text.split("\n");
+		for(int i = 1; i < lines.length; i++) {
+			if(lines[i].startsWith("Caused by:")) {
+				break;
+			}
+			Matcher matcher = FRAME.matcher(lines[i]);
+			if(matcher.matches()) {
+				String file = matcher.group(3);
+				int line = matcher.group(4) == null ? -1 : Integer.parseInt(matcher.group(4));
+				if("Native Method".equals(file)) {
+					file = null;
+					line = -2;
+				} else if(file.isEmpty() || "Unknown Source".equals(file)) {
+					file = null;
+				}
+				frames.add(new StackTraceElement(matcher.group(1), matcher.group(2), file, line));
+			}
+		}
+		return frames.toArray(new StackTraceElement[frames.size()]);
+	}
+
+	/**
+	 * Get the class name of the original exception, from the first line of the text
+	 * @return The class name, or the name of this class if the text does not start with one
+	 */
+	public String getClassName() {
+		int colon = firstLine.indexOf(':');
+		String name = (colon < 0 ? firstLine : firstLine.substring(0, colon)).trim();
+		return CLASS_NAME.matcher(name).matches() ? name : getClass().getName();
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		// The stack of the replaying thread means nothing, the frames come from the text
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return firstLine;
+	}
+
+	@Override
+	public void printStackTrace(PrintStream stream) {
+		stream.println(text);
+	}
+
+	@Override
+	public void printStackTrace(PrintWriter writer) {
+		writer.println(text);
+	}
+
+}
@@ -0,0 +1,79 @@
+package me.wiefferink.errorsink.common.matching;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+public class LiteralMatcherTest {
+
+	private static LiteralMatcher create(String... literals) {
+		LiteralMatcher matcher = new LiteralMatcher();
+		for(int i = 0; i < literals.length; i++) {
+			matcher.add(literals[i], i);
+		}
+		matcher.build();
+		return matcher;
+	}
+
+	@Test
+	public void overlappingLiterals() {
+		LiteralMatcher matcher = create("he", "she", "his", "hers");
+		assertArrayEquals(new long[] {0b1011}, matcher.match("ushers", new long[1]));
+		assertArrayEquals(new long[] {0b0100}, matcher.match("this", new long[1]));
+		assertArrayEquals(new long[] {0b0001}, matcher.match("hhe", new long[1]));
+	}
+
+	@Test
+	public void literalInsideAnother() {
+		LiteralMatcher matcher = create("abcd", "bc", "c");
+		assertArrayEquals(new long[] {0b110}, matcher.match("xbcx", new long[1]));
+		assertArrayEquals(new long[] {0b111}, matcher.match("abcd", new long[1]));
+		assertArrayEquals(new long[] {0b110}, matcher.match("abcabc", new long[1]));
+	}
+
+	@Test
+	public void sharedIds() {
+		LiteralMatcher matcher = new LiteralMatcher();
+		matcher.add("error", 0);
+		matcher.add("warning", 0);
+		matcher.add("lag", 1);
+		matcher.build();
+		assertArrayEquals(new long[] {0b01}, matcher.match("a warning", new long[1]));
+		assertArrayEquals(new long[] {0b11}, matcher.match("lag error", new long[1]));
+	}
+
+	@Test
+	public void largeIds() {
+		LiteralMatcher matcher = new LiteralMatcher();
+		matcher.add("first", 0);
+		matcher.add("second", 64);
+		matcher.add("third", 130);
+		matcher.build();
+		assertArrayEquals(new long[] {0, 1, 1L << 2}, matcher.match("third second", new long[3]));
+	}
+
+	@Test
+	public void baseIsNotModified() {
+		LiteralMatcher matcher = create("abc", "def");
+		long[] base = {0b10};
+		// Nothing new found: no copy
+		assertSame(base, matcher.match("xyz", base));
+		assertSame(base, matcher.match("def", base));
+		assertArrayEquals(new long[] {0b11}, matcher.match("abc", base));
+		assertArrayEquals(new long[] {0b10}, base);
+	}
+
+	@Test
+	public void emptyText() {
+		LiteralMatcher matcher = create("abc");
+		long[] base = new long[1];
+		assertSame(base, matcher.match("", base));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void notBuilt() {
+		new LiteralMatcher().match("abc", new long[1]);
+	}
+
+}
@@ -0,0 +1,136 @@
+package me.wiefferink.errorsink.common.matching;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegexLiteralsTest {
+
+	/**
+	 * Check the required literal of a regex, and that inputs matching the regex actually contain it
+	 * @param regex    The regex to analyze
+	 * @param expected The expected literal, or null if none should be found
+	 * @param matching Inputs that match the regex, none for an invalid regex
+	 */
+	private static void assertRequired(String regex, String expected, String... matching) {
+		assertEquals(regex, expected, RegexLiterals.getRequiredLiteral(regex));
+		if(matching.length == 0) {
+			return;
+		}
+		Pattern pattern = Pattern.compile(regex);
+		for(String input : matching) {
+			assertTrue(regex + " should match " + input, pattern.matcher(input).find());
+			if(expected != null) {
+				assertTrue(input + " should contain " + expected, input.contains(expected));
+			}
+		}
+	}
+
+	@Test
+	public void plainText() {
+		assertRequired("Can't keep up!", "Can't keep up!", "Can't keep up! Is the server overloaded?");
+		assertRequired("a", null, "a");
+	}
+
+	@Test
+	public void quantifiers() {
+		// Of equally long runs the first is kept
+		assertRequired("colou?r", "colo", "color", "colour");
+		assertRequired("ab*cd", "cd", "acd", "abbbcd");
+		assertRequired("abc+d", "abc", "abcd", "abcccd");
+		assertRequired("abc{0,2}de", "ab", "abde", "abccde");
+		assertRequired("abc{2}de", "abc", "abccde");
+		assertRequired("abc*?def", "def", "abdef", "abccdef");
+		assertRequired("foo.*bar", "foo", "foo bar", "foobar");
+	}
+
+	@Test
+	public void quotedSections() {
+		assertRequired("\\Qfoo.bar\\E", "foo.bar", "x foo.bar y");
+		// A quantifier after \E applies to the last quoted character only
+		assertRequired("\\Qfoo.bar\\E*x", "foo.ba", "foo.bax", "foo.barrrx");
+		assertRequired("\\Qab\\E?cd", "cd", "acd", "abcd");
+		assertRequired("\\Qabc\\E{0,1}z", "ab", "abz", "abcz");
+		assertRequired("\\Qab\\E+", "ab", "ab", "abbb");
+		assertRequired("\\Q(|)\\E", "(|)", "a(|)b");
+	}
+
+	@Test
+	public void escapes() {
+		assertRequired("Player \\w+ joined", "Player ", "Player Steve joined");
+		assertRequired("1\\.2\\.3", "1.2.3", "version 1.2.3");
+		assertRequired("\\bError\\b", "Error", "An Error happened");
+		assertRequired("\\p{Alpha}+foo", null, "abcfoo");
+		assertRequired("\\x41BC", null, "ABC");
+		// Escapes that are not parsed could hide an alternation
+		assertRequired("abcd\\p{L}|xyz", null, "xyz");
+		assertRequired("Foobar\\x41|other", null, "other");
+		assertRequired("Error (\\d)x\\1|warning", null, "warning");
+	}
+
+	@Test
+	public void groups() {
+		assertRequired("foo(bar)?baz", "foo", "foobaz", "foobarbaz");
+		assertRequired("(foo|bar)bazz", "bazz", "foobazz", "barbazz");
+		assertRequired("(?:abc)+defg", "defg", "abcdefg");
+		assertRequired("(?<name>\\w+) left the game", " left the game", "Steve left the game");
+		assertRequired("ab(c(d)e)*fg", "ab", "abfg", "abcdefg");
+		assertRequired("(a\\)b)cd", "cd", "a)bcd");
+		assertRequired("(\\Q)\\E)xy", "xy", ")xy");
+		assertRequired("(abc", null);
+	}
+
+	@Test
+	public void inlineFlags() {
+		assertRequired("(?i)exception", null, "EXCEPTION", "Exception");
+		assertRequired("error(?i)warning", null, "errorWARNING");
+		// Groups with flags are not analyzed at all
+		assertRequired("(?i:abc)def", null, "ABCdef");
+	}
+
+	@Test
+	public void characterClasses() {
+		assertRequired("[abc]def", "def", "adef");
+		assertRequired("ab[)|]cd", "ab", "ab)cd", "ab|cd");
+		assertRequired("[]]xyz", "xyz", "]xyz");
+		assertRequired("[\\]]xyz", "xyz", "]xyz");
+		assertRequired("ab[^c]?de", "ab", "abde", "abxde");
+		assertRequired("[a-z[0-9]]+end", "end", "x9end");
+	}
+
+	@Test
+	public void alternation() {
+		assertRequired("foo|bar", null, "foo", "bar");
+		assertRequired("foobar|x", null, "x");
+		assertRequired("abc)", null);
+	}
+
+	@Test
+	public void literalOnly() {
+		RegexLiterals analysis = RegexLiterals.analyze("^Done \\(\\d");
+		assertFalse(analysis.isLiteral());
+
+		analysis = RegexLiterals.analyze("^Saving chunks\\.$");
+		assertTrue(analysis.isLiteral());
+		assertEquals("Saving chunks.", analysis.getLiteral());
+		assertTrue(analysis.isStartAnchored());
+		assertTrue(analysis.isEndAnchored());
+
+		analysis = RegexLiterals.analyze("a\\Q.*\\Eb");
+		assertTrue(analysis.isLiteral());
+		assertEquals("a.*b", analysis.getLiteral());
+		assertFalse(analysis.isStartAnchored());
+		assertFalse(analysis.isEndAnchored());
+
+		assertFalse(RegexLiterals.analyze("ab?").isLiteral());
+		assertFalse(RegexLiterals.analyze("a|b").isLiteral());
+		assertFalse(RegexLiterals.analyze("[ab]").isLiteral());
+		assertFalse(RegexLiterals.analyze("(?i)ab").isLiteral());
+		assertFalse(RegexLiterals.analyze("\\Qab\\E*").isLiteral());
+	}
+
+}
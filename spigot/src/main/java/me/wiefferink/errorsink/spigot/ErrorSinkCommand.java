@@ -0,0 +1,42 @@
+package me.wiefferink.errorsink.spigot;
+
+import me.wiefferink.errorsink.common.ErrorSink;
+import me.wiefferink.errorsink.common.Log;
+import me.wiefferink.errorsink.common.StatisticsReport;
+import me.wiefferink.errorsink.spigot.tools.Utils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+public class ErrorSinkCommand implements CommandExecutor {
+
+	@Override
+	public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+		if(args.length == 0) {
+			return false;
+		}
+
+		if(args[0].equalsIgnoreCase("stats")) {
+			for(String line : StatisticsReport.create(SpigotErrorSink.getInstance().getAppender())) {
+				sender.sendMessage(line);
+			}
+			return true;
+		}
+
+		if(args[0].equalsIgnoreCase("reload")) {
+			sender.sendMessage("Reloading the filters and rules of ErrorSink...");
+			ErrorSink.reload().whenComplete((ruleSet, error) -> Utils.run(() -> {
+				if(error == null) {
+					sender.sendMessage("Reloaded " + ruleSet.getRuleTable().size() + " filters and rules");
+				} else {
+					Log.error("Failed to reload the config:", ExceptionUtils.getStackTrace(error));
+					sender.sendMessage("Reloading failed, the old filters and rules stay active, see the console for details");
+				}
+			}));
+			return true;
+		}
+		return false;
+	}
+
+}
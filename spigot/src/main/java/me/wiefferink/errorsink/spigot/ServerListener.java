@@ -0,0 +1,38 @@
+package me.wiefferink.errorsink.spigot;
+
+import me.wiefferink.errorsink.common.ErrorSink;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+
+/**
+ * Keeps the server information used in events up-to-date, so that events do not need to query the server
+ */
+public class ServerListener implements Listener {
+
+	// Plugin list changed (supporting hot plugin loading)
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPluginEnable(PluginEnableEvent event) {
+		ErrorSink.updateServerSnapshot();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPluginDisable(PluginDisableEvent event) {
+		ErrorSink.updateServerSnapshot();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerJoin(PlayerJoinEvent event) {
+		ErrorSink.playerJoined();
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		ErrorSink.playerLeft();
+	}
+
+}
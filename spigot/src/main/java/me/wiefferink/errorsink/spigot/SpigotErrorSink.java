@@ -3,11 +3,10 @@ package me.wiefferink.errorsink.spigot;
 import io.sentry.Sentry;
 import io.sentry.SentryClient;
 import io.sentry.dsn.InvalidDsnException;
-import io.sentry.event.EventBuilder;
 import me.wiefferink.errorsink.common.ErrorSink;
 import me.wiefferink.errorsink.common.ErrorSinkPlugin;
 import me.wiefferink.errorsink.common.ErrorSinkSentryAppender;
-import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.EventEditor;
 import me.wiefferink.errorsink.common.Log;
 import me.wiefferink.errorsink.common.editors.Breadcrumbs;
 import me.wiefferink.errorsink.spigot.tools.Analytics;
@@ -29,23 +28,19 @@ import java.lang.reflect.Method;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 // TODO try changing System.err logging to level error instead of warn?
-// TODO command to reload config?
 public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 
 	private static SpigotErrorSink instance;
 	private SentryClient sentryClient;
 	private ErrorSinkSentryAppender appender;
-	private int messagesSent = 0;
 	public static boolean hasOldLog4j2;
-	private ConfigurationNode rootNode;
-    private Map<List<Object>, EventRuleMatcher> matcherMap = new HashMap<>();
+	private YAMLConfigurationLoader loader;
+	private volatile ConfigurationNode rootNode;
 
 	private BukkitSentryClientFactory bukkitSentryClientFactory;
 
@@ -60,7 +55,7 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 		Log.setDebug(getConfig().getBoolean("debug"));
 		saveDefaultConfig();
 
-		YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder().setPath(Paths.get(getDataFolder().getPath()).resolve("config.yml")).build();
+		loader = YAMLConfigurationLoader.builder().setPath(Paths.get(getDataFolder().getPath()).resolve("config.yml")).build();
 		try {
 			this.rootNode = loader.load();
 		} catch (IOException e) {
@@ -97,6 +92,10 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 	@Override
 	public void onEnable() {
 		SpigotErrorSink.getInstance().getServer().getPluginManager().registerEvents(bukkitSentryClientFactory, SpigotErrorSink.getInstance());
+		SpigotErrorSink.getInstance().getServer().getPluginManager().registerEvents(new ServerListener(), SpigotErrorSink.getInstance());
+		// All plugins loaded now, players might already be online after a reload
+		ErrorSink.updateServerSnapshot();
+		ErrorSink.setOnlinePlayers(getOnlinePlayers());
 		// All plugins loaded now, update packages
 		bukkitSentryClientFactory.updateInAppFrames();
 		// Services should now be registered
@@ -109,6 +108,7 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 		}
 
 		this.getCommand("exception").setExecutor(new DeliberateException());
+		this.getCommand("errorsink").setExecutor(new ErrorSinkCommand());
 	}
 
 	@Override
@@ -131,33 +131,19 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 		return instance;
 	}
 
-	/**
-	 * Add a message sent
-	 */
-	@Override
-	public void increaseMessageSent() {
-		messagesSent++;
-	}
-
-    @Override
-    public Map<List<Object>, EventRuleMatcher> getMatcherMap() {
-        return this.matcherMap;
-    }
-
     @Override
     public ConfigurationNode getPluginConfig() {
         return this.rootNode;
     }
 
-    /**
-	 * Get the message count sent since last reset
-	 *
-	 * @return Messages sent since last reset
-	 */
-	public int getAndResetMessageSent() {
-		int result = messagesSent;
-		messagesSent = 0;
-		return result;
+	@Override
+	public ConfigurationNode loadPluginConfig() throws IOException {
+		return loader.load();
+	}
+
+	@Override
+	public void setPluginConfig(ConfigurationNode rootNode) {
+		this.rootNode = rootNode;
 	}
 
 	/**
@@ -188,7 +174,7 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 		logger.addAppender(appender);
 
 		// Add later to prevent reported messages also appearing in the breadcrumbs
-		appender.addEventEditor(new Breadcrumbs(logger));
+		appender.addEventEditor(new Breadcrumbs(logger), EventEditor.PRIORITY_DEFAULT, false);
 	}
 
 	/**
@@ -239,9 +225,11 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 	}
 
 	@Override
-	public void addExtraData(EventBuilder builder) {
-		builder.withExtra("Bukkit", Bukkit.getBukkitVersion());
-		builder.withExtra("CraftBukkit", Bukkit.getVersion());
+	public SortedMap<String, String> getExtraData() {
+		SortedMap<String, String> extraData = new TreeMap<>();
+		extraData.put("Bukkit", Bukkit.getBukkitVersion());
+		extraData.put("CraftBukkit", Bukkit.getVersion());
+		return extraData;
 	}
 
 	/**
@@ -271,6 +259,14 @@ public class SpigotErrorSink extends JavaPlugin implements ErrorSinkPlugin {
 		return getDescription().getVersion();
 	}
 
+	/**
+	 * Get the appender collecting events
+	 * @return The appender, or null if collecting did not start
+	 */
+	public ErrorSinkSentryAppender getAppender() {
+		return appender;
+	}
+
 	/**
 	 * Get the Raven instance, for example for adding extra BuilderHelpers
 	 * @return The used Raven instance
@@ -19,9 +19,14 @@ public class Analytics {
 
             // Messages sent since the last collection time (15 minutes)
             metrics.addCustomChart(new Metrics.SingleLineChart("messages_sent") {
+                private long lastSent = 0;
+
                 @Override
                 public int getValue() {
-                    return SpigotErrorSink.getInstance().getAndResetMessageSent();
+                    long sent = SpigotErrorSink.getInstance().getStatistics().getSent();
+                    int result = (int) (sent - lastSent);
+                    lastSent = sent;
+                    return result;
                 }
             });
 
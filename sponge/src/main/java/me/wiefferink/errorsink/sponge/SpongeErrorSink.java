@@ -4,12 +4,12 @@ import com.google.inject.Inject;
 import io.sentry.Sentry;
 import io.sentry.SentryClient;
 import io.sentry.dsn.InvalidDsnException;
-import io.sentry.event.EventBuilder;
 import me.wiefferink.errorsink.common.ErrorSink;
 import me.wiefferink.errorsink.common.ErrorSinkPlugin;
 import me.wiefferink.errorsink.common.ErrorSinkSentryAppender;
-import me.wiefferink.errorsink.common.EventRuleMatcher;
+import me.wiefferink.errorsink.common.EventEditor;
 import me.wiefferink.errorsink.common.Log;
+import me.wiefferink.errorsink.common.StatisticsReport;
 import me.wiefferink.errorsink.common.editors.Breadcrumbs;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
@@ -29,17 +29,19 @@ import org.spongepowered.api.command.spec.CommandExecutor;
 import org.spongepowered.api.command.spec.CommandSpec;
 import org.spongepowered.api.config.DefaultConfig;
 import org.spongepowered.api.event.Listener;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.game.state.GameLoadCompleteEvent;
 import org.spongepowered.api.event.game.state.GamePreInitializationEvent;
+import org.spongepowered.api.event.game.state.GameStartedServerEvent;
+import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.plugin.Plugin;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.text.Text;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -58,11 +60,10 @@ public class SpongeErrorSink implements ErrorSinkPlugin {
 
     private YAMLConfigurationLoader configManager;
 
-    private ConfigurationNode rootNode;
+    private volatile ConfigurationNode rootNode;
     private SpongeSentryClientFactory spongeSentryClientFactory;
     private SentryClient sentryClient;
     private ErrorSinkSentryAppender appender;
-    private Map<List<Object>, EventRuleMatcher> matcherMap = new HashMap<>();
 
     private Path getYmlPath(Path confPath) {
         int ext = confPath.getFileName().toString().indexOf(".conf");
@@ -100,9 +101,58 @@ public class SpongeErrorSink implements ErrorSinkPlugin {
                 }).build(),
         "exception");
 
+        Sponge.getCommandManager().register(this, CommandSpec.builder()
+                .description(Text.of("Show statistics of ErrorSink or reload its filters and rules"))
+                .permission("errorsink.admin")
+                .child(CommandSpec.builder()
+                        .executor((src, args) -> {
+                            for(String line : StatisticsReport.create(appender)) {
+                                src.sendMessage(Text.of(line));
+                            }
+                            return CommandResult.success();
+                        }).build(),
+                "stats")
+                .child(CommandSpec.builder()
+                        .executor((src, args) -> {
+                            src.sendMessage(Text.of("Reloading the filters and rules of ErrorSink..."));
+                            ErrorSink.reload().whenComplete((ruleSet, error) -> Sponge.getScheduler().createTaskBuilder().execute(() -> {
+                                if(error == null) {
+                                    src.sendMessage(Text.of("Reloaded " + ruleSet.getRuleTable().size() + " filters and rules"));
+                                } else {
+                                    Log.error("Failed to reload the config:", ExceptionUtils.getStackTrace(error));
+                                    src.sendMessage(Text.of("Reloading failed, the old filters and rules stay active, see the console for details"));
+                                }
+                            }).submit(this));
+                            return CommandResult.success();
+                        }).build(),
+                "reload")
+                .build(),
+        "errorsink");
+
         startCollecting(dsn);
     }
 
+    // Sponge has no plugin hot loading, the plugin list is complete when loading finishes
+    @Listener(order = Order.POST)
+    public void onLoadComplete(GameLoadCompleteEvent event) {
+        ErrorSink.updateServerSnapshot();
+    }
+
+    @Listener(order = Order.POST)
+    public void onServerStarted(GameStartedServerEvent event) {
+        ErrorSink.setOnlinePlayers(getOnlinePlayers());
+    }
+
+    @Listener(order = Order.POST)
+    public void onPlayerJoin(ClientConnectionEvent.Join event) {
+        ErrorSink.playerJoined();
+    }
+
+    @Listener(order = Order.POST)
+    public void onPlayerLeave(ClientConnectionEvent.Disconnect event) {
+        ErrorSink.playerLeft();
+    }
+
     /**
      * Start collecting events
      * @param dsn The Sentry DSN to use to send the events
@@ -132,7 +182,7 @@ public class SpongeErrorSink implements ErrorSinkPlugin {
         fmlLogger.addAppender(appender);
 
         // Add later to prevent reported messages also appearing in the breadcrumbs
-        appender.addEventEditor(new Breadcrumbs(logger, fmlLogger));
+        appender.addEventEditor(new Breadcrumbs(logger, fmlLogger), EventEditor.PRIORITY_DEFAULT, false);
     }
 
     /**
@@ -163,18 +213,18 @@ public class SpongeErrorSink implements ErrorSinkPlugin {
     }
 
     @Override
-    public void increaseMessageSent() {
-
+    public ConfigurationNode getPluginConfig() {
+        return this.rootNode;
     }
 
     @Override
-    public Map<List<Object>, EventRuleMatcher> getMatcherMap() {
-        return this.matcherMap;
+    public ConfigurationNode loadPluginConfig() throws IOException {
+        return this.configManager.load();
     }
 
     @Override
-    public ConfigurationNode getPluginConfig() {
-        return this.rootNode;
+    public void setPluginConfig(ConfigurationNode rootNode) {
+        this.rootNode = rootNode;
     }
 
     @Override
@@ -197,8 +247,10 @@ public class SpongeErrorSink implements ErrorSinkPlugin {
     }
 
     @Override
-    public void addExtraData(EventBuilder builder) {
-        builder.withExtra("SpongeAPI", Sponge.getGame().getPlatform().getContainer(Platform.Component.API).getVersion().orElse("UNKNOWN-SPONGE-API"));
+    public SortedMap<String, String> getExtraData() {
+        SortedMap<String, String> extraData = new TreeMap<>();
+        extraData.put("SpongeAPI", Sponge.getGame().getPlatform().getContainer(Platform.Component.API).getVersion().orElse("UNKNOWN-SPONGE-API"));
+        return extraData;
     }
 
 }